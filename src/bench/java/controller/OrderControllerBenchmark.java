@@ -0,0 +1,34 @@
+package controller;
+
+import model.Book;
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Расчёт стоимости аренды в контроллере — без обращения к базе
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderControllerBenchmark {
+    private OrderController controller;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        controller = new OrderController();
+        LocalDate issue = LocalDate.of(2024, 3, 1);
+        order = new Order(1, 1, 1, Date.valueOf(issue), Date.valueOf(issue.plusDays(14)));
+        order.setBook(new Book(1, "Title", "Author", "Genre", new BigDecimal("1500.00"), new BigDecimal("45.50")));
+    }
+
+    @Benchmark
+    public BigDecimal calculateRentalCost() {
+        return controller.calculateRentalCost(order);
+    }
+}
@@ -0,0 +1,147 @@
+package model;
+
+import util.DataAccessExecutor;
+import util.DatabaseConfig;
+import util.SchemaBootstrap;
+import util.SqlDialect;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Встраиваемая H2 в режиме MySQL со схемой приложения, заполненная детерминированными данными.
+// URL задаётся до первого обращения к пулу соединений, поэтому вызывать prepare() нужно в @Setup.
+final class BenchDatabase {
+    static final String URL = System.getProperty("biblio.db.url",
+            "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+
+    private static final int DISCOUNTS = 10;
+    private static final int PENALTIES = 10;
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchDatabase() {
+    }
+
+    // Пересоздаёт схему и заполняет её; у каждого заказа до maxAssociations скидок и штрафов
+    static void prepare(int books, int customers, int orders, int maxAssociations) throws SQLException {
+        System.setProperty("biblio.db.url", URL);
+        System.setProperty("biblio.db.user", "sa");
+        System.setProperty("biblio.db.password", "");
+        // Наблюдаемые списки обновляются сразу, без потока JavaFX
+        DataAccessExecutor.setUiExecutor(Runnable::run);
+
+        Random random = new Random(42);
+        try (Connection conn = openConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+            }
+            SchemaBootstrap.ensureSchema(conn, SqlDialect.H2, false);
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO books (title, author, genre, deposit_cost, rental_cost_per_day) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= books; i++) {
+                    pstmt.setString(1, "Book " + i);
+                    pstmt.setString(2, "Author " + random.nextInt(Math.max(books / 10, 1)));
+                    pstmt.setString(3, "Genre " + random.nextInt(20));
+                    pstmt.setBigDecimal(4, BigDecimal.valueOf(500 + random.nextInt(1500)));
+                    pstmt.setBigDecimal(5, BigDecimal.valueOf(1000 + random.nextInt(9000), 2));
+                    addBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO customers (address, full_name, phone_number) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= customers; i++) {
+                    pstmt.setString(1, "Street " + random.nextInt(1000));
+                    pstmt.setString(2, "Customer " + i);
+                    pstmt.setString(3, String.format("+7 9%09d", random.nextInt(1_000_000_000)));
+                    addBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO users (username, password, role, customer_id) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= customers; i++) {
+                    pstmt.setString(1, "user" + i);
+                    pstmt.setString(2, "password");
+                    pstmt.setString(3, "USER");
+                    pstmt.setInt(4, i);
+                    addBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement discounts = conn.prepareStatement(
+                    "INSERT INTO discounts (discount_name, discount_amount) VALUES (?, ?)");
+                 PreparedStatement penalties = conn.prepareStatement(
+                         "INSERT INTO penalties (penalty_name, penalty_amount) VALUES (?, ?)")) {
+                for (int i = 0; i < DISCOUNTS; i++) {
+                    discounts.setString(1, "Discount " + i);
+                    discounts.setBigDecimal(2, BigDecimal.valueOf(10 + i * 5));
+                    discounts.addBatch();
+                }
+                for (int i = 0; i < PENALTIES; i++) {
+                    penalties.setString(1, "Penalty " + i);
+                    penalties.setBigDecimal(2, BigDecimal.valueOf(50 + i * 25));
+                    penalties.addBatch();
+                }
+                discounts.executeBatch();
+                penalties.executeBatch();
+            }
+
+            LocalDate start = LocalDate.of(2024, 1, 1);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO orders (customer_id, isbn, issue_date, return_date) VALUES (?, ?, ?, ?)");
+                 PreparedStatement orderDiscounts = conn.prepareStatement(
+                         "INSERT INTO orderdiscounts (order_id, discount_name) VALUES (?, ?)");
+                 PreparedStatement orderPenalties = conn.prepareStatement(
+                         "INSERT INTO orderpenalties (order_id, penalty_name) VALUES (?, ?)")) {
+                for (int i = 1; i <= orders; i++) {
+                    LocalDate issue = start.plusDays(random.nextInt(365));
+                    pstmt.setInt(1, 1 + random.nextInt(customers));
+                    pstmt.setInt(2, 1 + random.nextInt(books));
+                    pstmt.setDate(3, Date.valueOf(issue));
+                    pstmt.setDate(4, Date.valueOf(issue.plusDays(1 + random.nextInt(30))));
+                    addBatch(pstmt, i);
+
+                    // Идентификаторы заказов идут подряд с 1, поэтому связи можно писать сразу
+                    int discountCount = random.nextInt(maxAssociations + 1);
+                    for (int d = 0; d < discountCount; d++) {
+                        orderDiscounts.setInt(1, i);
+                        orderDiscounts.setString(2, "Discount " + ((i + d) % DISCOUNTS));
+                        orderDiscounts.addBatch();
+                    }
+                    int penaltyCount = random.nextInt(maxAssociations + 1);
+                    for (int p = 0; p < penaltyCount; p++) {
+                        orderPenalties.setInt(1, i);
+                        orderPenalties.setString(2, "Penalty " + ((i + p) % PENALTIES));
+                        orderPenalties.addBatch();
+                    }
+                    if (i % BATCH_SIZE == 0) {
+                        orderDiscounts.executeBatch();
+                        orderPenalties.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                orderDiscounts.executeBatch();
+                orderPenalties.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private static void addBatch(PreparedStatement pstmt, int row) throws SQLException {
+        pstmt.addBatch();
+        if (row % BATCH_SIZE == 0) {
+            pstmt.executeBatch();
+        }
+    }
+
+    // Отдельное соединение мимо пула — для чтения сырых ResultSet в бенчмарках маппинга
+    static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(URL, DatabaseConfig.getUser(), DatabaseConfig.getPassword());
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость маппинга одной строки ResultSet в объект модели для каждой сущности
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private static final int ROWS = 1000;
+    private static final Map<String, Class<?>> ENTITIES = Map.of(
+            "books", Book.class,
+            "customers", Customer.class,
+            "orders", Order.class,
+            "users", User.class,
+            "discounts", Discount.class,
+            "penalties", Penalty.class
+    );
+
+    @Param({"books", "customers", "orders", "users", "discounts", "penalties"})
+    public String table;
+
+    private Connection conn;
+    private ResultSet rs;
+    private DataModel<?> model;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.prepare(ROWS, ROWS, ROWS, 2);
+        model = new DataModel<>(ENTITIES.get(table));
+        conn = BenchDatabase.openConnection();
+        Statement stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rs = stmt.executeQuery("SELECT * FROM " + table);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public Object mapRow() throws SQLException {
+        if (!rs.next()) {
+            rs.beforeFirst();
+            rs.next();
+        }
+        return model.mapResultSetToObject(rs);
+    }
+}
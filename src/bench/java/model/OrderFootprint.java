@@ -0,0 +1,100 @@
+package model;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+// Занимаемая кэшем память на один заказ: прежнее представление против компактного.
+// Не JMH-бенчмарк — JMH меряет время, а здесь нужен удерживаемый объём кучи:
+//   java -cp target/benchmarks.jar model.OrderFootprint [число заказов]
+public final class OrderFootprint {
+    private static final int DISCOUNTS = 10;
+    private static final int PENALTIES = 10;
+
+    private OrderFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Book book = new Book(1, "Title", "Author", "Genre", new BigDecimal("1500.00"), new BigDecimal("45.50"));
+        Discount[] discounts = new Discount[DISCOUNTS];
+        Penalty[] penalties = new Penalty[PENALTIES];
+        for (int i = 0; i < DISCOUNTS; i++) {
+            discounts[i] = new Discount("Discount " + i, BigDecimal.valueOf(10 + i * 5L));
+        }
+        for (int i = 0; i < PENALTIES; i++) {
+            penalties[i] = new Penalty("Penalty " + i, BigDecimal.valueOf(50 + i * 25L));
+        }
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        // Те же данные для обоих представлений: у заказа от 0 до 2 скидок и штрафов из общих справочников
+        report("legacy", count, i -> {
+            Random random = new Random(i);
+            LocalDate issue = start.plusDays(random.nextInt(365));
+            LegacyOrder order = new LegacyOrder(i, 1 + random.nextInt(10_000), 1,
+                    Date.valueOf(issue), Date.valueOf(issue.plusDays(1 + random.nextInt(30))));
+            order.setBook(book);
+            for (int d = random.nextInt(3); d > 0; d--) {
+                order.addDiscount(discounts[random.nextInt(DISCOUNTS)]);
+            }
+            for (int p = random.nextInt(3); p > 0; p--) {
+                order.addPenalty(penalties[random.nextInt(PENALTIES)]);
+            }
+            return order;
+        });
+
+        IntFunction<Order> compact = i -> {
+            Random random = new Random(i);
+            LocalDate issue = start.plusDays(random.nextInt(365));
+            Order order = new Order(i, 1 + random.nextInt(10_000), 1,
+                    Date.valueOf(issue), Date.valueOf(issue.plusDays(1 + random.nextInt(30))));
+            order.setBook(book);
+            for (int d = random.nextInt(3); d > 0; d--) {
+                order.addDiscount(discounts[random.nextInt(DISCOUNTS)]);
+            }
+            for (int p = random.nextInt(3); p > 0; p--) {
+                order.addPenalty(penalties[random.nextInt(PENALTIES)]);
+            }
+            return order;
+        };
+        report("compact", count, compact);
+        // Худший случай: свойства JavaFX созданы для каждой строки, как если бы все они были на экране
+        report("compact+properties", count, i -> {
+            Order order = compact.apply(i);
+            order.issueDateProperty();
+            return order;
+        });
+    }
+
+    private static void report(String name, int count, IntFunction<?> factory) {
+        long before = usedHeap();
+        Object[] orders = new Object[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = factory.apply(i);
+        }
+        long after = usedHeap();
+        // Массив ссылок не относится к заказу
+        long arrayBytes = (long) count * 4 + 16;
+        System.out.printf("%-20s %,d orders: %,d bytes/order%n",
+                name, count, (after - before - arrayBytes) / count);
+        if (orders[count - 1] == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Пересчёт стоимости аренды и итоговой суммы заказа с разным числом скидок и штрафов,
+// а также пакетный пересчёт массива заказов. Сверка с прежним расчётом — PricingEngineTest.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPricingBenchmark {
+    @Param({"0", "4", "32"})
+    public int adjustments;
+
+    private static final int BULK_ORDERS = 10_000;
+
+    private Order order;
+    private Order[] orders;
+
+    @Setup
+    public void setUp() {
+        LocalDate issue = LocalDate.of(2024, 3, 1);
+        Order.Builder builder = Order.builder(1, 1, 1, Date.valueOf(issue), Date.valueOf(issue.plusDays(14)))
+                .book(new Book(1, "Title", "Author", "Genre", new BigDecimal("1500.00"), new BigDecimal("45.50")));
+        for (int i = 0; i < adjustments; i++) {
+            builder.discount(new Discount("Discount " + i, new BigDecimal("12.25")));
+            builder.penalty(new Penalty("Penalty " + i, new BigDecimal("30.00")));
+        }
+        order = builder.build();
+
+        orders = new Order[BULK_ORDERS];
+        for (int i = 0; i < BULK_ORDERS; i++) {
+            orders[i] = Order.builder(i, 1, 1, Date.valueOf(issue), Date.valueOf(issue.plusDays(1 + i % 30)))
+                    .book(order.getBook())
+                    .discounts(order.getDiscounts())
+                    .penalties(order.getPenalties())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calculateRentalCost() {
+        order.calculateRentalCost();
+        return order.getTotalAmount();
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotal() {
+        order.calculateTotal();
+        return order.getTotalAmount();
+    }
+
+    @Benchmark
+    public long repriceAll() {
+        PricingEngine.reprice(orders);
+        return orders[BULK_ORDERS - 1].getTotalAmountMinor();
+    }
+
+    @Benchmark
+    public long calculateTotalMinor() {
+        order.calculateTotal();
+        return order.getTotalAmountMinor();
+    }
+}
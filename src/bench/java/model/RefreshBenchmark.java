@@ -0,0 +1,56 @@
+package model;
+
+import org.openjdk.jmh.annotations.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Полная перезагрузка заказов и пакетная загрузка их скидок, штрафов и книг из встраиваемой базы
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RefreshBenchmark {
+    private static final int ASSOCIATION_SAMPLE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int orders;
+
+    @Param({"3"})
+    public int maxAssociations;
+
+    private DataModel<Order> model;
+    private final List<Order> sample = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchDatabase.prepare(Math.max(orders / 10, 1), Math.max(orders / 20, 1), orders, maxAssociations);
+        model = new DataModel<>(Order.class);
+        model.refreshImmediately();
+        List<Order> loaded = model.getAll();
+        for (int i = 0; i < Math.min(ASSOCIATION_SAMPLE, loaded.size()); i++) {
+            sample.add(loaded.get(i * (loaded.size() / Math.min(ASSOCIATION_SAMPLE, loaded.size()))));
+        }
+    }
+
+    @Benchmark
+    public int refreshOrders() throws SQLException {
+        model.refreshImmediately();
+        return model.getObservableData().size();
+    }
+
+    // Свежие экземпляры на каждый вызов: загрузка добавляет скидки и штрафы к заказу
+    @Benchmark
+    public List<Order> loadAssociations() {
+        List<Order> fresh = new ArrayList<>(sample.size());
+        for (Order order : sample) {
+            fresh.add(new Order(order.getOrderId(), order.getCustomerId(), order.getIsbn(),
+                    order.getIssueDate(), order.getReturnDate()));
+        }
+        DataModel.loadOrderAssociations(fresh);
+        return fresh;
+    }
+}
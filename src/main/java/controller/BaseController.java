@@ -1,29 +1,108 @@
 package controller;
 
+import model.ChangeEvent;
+import model.ChangeLogPoller;
 import model.DataModel;
+import model.QuerySpec;
+import util.DataAccessExecutor;
 import util.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public abstract class BaseController<T> {
+    protected static final int BATCH_SIZE = 1000;
+
     protected final DataModel<T> model;
-    protected final List<Runnable> refreshListeners = new ArrayList<>();
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
 
     public BaseController(Class<T> type) {
         this.model = new DataModel<>(type);
+        // Правки других клиентов приходят из опроса журнала и доставляются тем же слушателям
+        ChangeLogPoller.register(model);
+        model.addUnpublishedChangeListener(changeNotifier::publish);
     }
 
     public DataModel<T> getModel() {
         return model;
     }
 
-    public void addRefreshListener(Runnable listener) {
-        refreshListeners.add(listener);
+    // Слушатель получает изменения пачкой, асинхронно, в потоке JavaFX
+    public void addChangeListener(Consumer<ChangeEvent> listener) {
+        changeNotifier.addListener(listener);
+    }
+
+    public void removeChangeListener(Consumer<ChangeEvent> listener) {
+        changeNotifier.removeListener(listener);
     }
 
-    protected void notifyRefreshListeners() {
-        refreshListeners.forEach(Runnable::run);
+    // Вызывается после model.refreshChanges(): опрос журнала не объявит эти строки повторно
+    protected void notifyChanged(ChangeEvent.Type type, int... ids) {
+        model.markPublished(ids);
+        changeNotifier.publish(type, ids);
+    }
+
+    // Своя запись уже применена к модели через upsert. Если модель следит за журналом, она дочитывает его
+    // за этой записью: иначе опрос перечитал бы те же строки и объявил их второй раз
+    protected void catchUpWithChangeLog() {
+        if (!model.followsChangeLog()) {
+            return;
+        }
+        try {
+            model.refreshChanges();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Ключи изменённых строк неизвестны — слушатели перечитывают данные целиком
+    protected void notifyReload() {
+        changeNotifier.publishReload();
+    }
+
+    // Асинхронные варианты: работа с базой идёт в DataAccessExecutor, результат приходит в поток JavaFX
+    public <R> CompletableFuture<R> supplyAsync(Callable<R> action) {
+        return DataAccessExecutor.supply(action);
+    }
+
+    public CompletableFuture<Void> loadAsync() {
+        return DataAccessExecutor.supply(() -> {
+            model.refreshImmediately();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> refreshChangesAsync() {
+        return DataAccessExecutor.supply(() -> {
+            model.refreshChanges();
+            return null;
+        });
+    }
+
+    // Фильтрация и сортировка выполняются в SQL; результат заменяет содержимое модели
+    public CompletableFuture<Void> queryAsync(QuerySpec spec) {
+        return DataAccessExecutor.supply(() -> {
+            model.setQuery(spec);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> loadNextPageAsync() {
+        return DataAccessExecutor.supply(model::loadNextPage);
+    }
+
+    public CompletableFuture<Boolean> loadPreviousPageAsync() {
+        return DataAccessExecutor.supply(model::loadPreviousPage);
+    }
+
+    public CompletableFuture<List<T>> getAllAsync() {
+        // Снимок списка: дальнейшие обновления кэша не затронут элементы, переданные в UI
+        return DataAccessExecutor.supply(() -> List.copyOf(model.getAll()));
     }
 
 
@@ -69,12 +148,108 @@ public abstract class BaseController<T> {
         }
     }
 
+    // Пакетная вставка порциями по BATCH_SIZE строк, каждая порция — одна транзакция.
+    // Возвращает сгенерированные ключи в порядке строк; при ошибке текущая порция
+    // откатывается, а уже зафиксированные порции остаются в базе.
+    protected <E> int[] executeBatchInsert(String sql, List<E> rows, Function<E, Object[]> parameters) throws SQLException {
+        return executeBatchInsert(sql, rows, parameters, new ChunkHook<>() { });
+    }
+
+    // То же с действиями в транзакции каждой порции до и после вставки; исключение откатывает порцию
+    protected <E> int[] executeBatchInsert(String sql, List<E> rows, Function<E, Object[]> parameters,
+                                           ChunkHook<E> hook) throws SQLException {
+        int[] keys = new int[rows.size()];
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                int to = Math.min(from + BATCH_SIZE, rows.size());
+                try {
+                    hook.beforeInsert(conn, rows.subList(from, to));
+                    for (E row : rows.subList(from, to)) {
+                        setParameters(pstmt, parameters.apply(row));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    int index = from;
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        while (rs.next() && index < to) {
+                            keys[index++] = rs.getInt(1);
+                        }
+                    }
+                    if (index != to) {
+                        throw new SQLException("Expected " + (to - from) + " generated keys, got " + (index - from));
+                    }
+                    hook.afterInsert(conn, rows.subList(from, to), Arrays.copyOfRange(keys, from, to));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+        return keys;
+    }
+
+    // Единица работы: все операторы выполняются на одном соединении в одной транзакции.
+    // При любом исключении транзакция откатывается и исключение пробрасывается дальше.
+    protected <R> R inTransaction(UnitOfWork<R> work) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                R result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Операторы для использования внутри inTransaction
+    protected int update(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    protected int insertReturningKey(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            setParameters(pstmt, params);
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("No generated key for: " + sql);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
     private void setParameters(PreparedStatement pstmt, Object... params) throws SQLException {
         for (int i = 0; i < params.length; i++) {
             pstmt.setObject(i + 1, params[i]);
         }
     }
 
+    @FunctionalInterface
+    public interface UnitOfWork<R> {
+        R execute(Connection conn) throws SQLException;
+    }
+
+    // Работа в транзакции порции пакетной вставки: проверки до вставки и записи, которым нужны новые ключи
+    public interface ChunkHook<E> {
+        default void beforeInsert(Connection conn, List<E> rows) throws SQLException {
+        }
+
+        default void afterInsert(Connection conn, List<E> rows, int[] keys) throws SQLException {
+        }
+    }
+
     @FunctionalInterface
     public interface ResultSetHandler<R> {
         R handle(ResultSet rs) throws SQLException;
@@ -1,7 +1,17 @@
 package controller;
 
 import model.Book;
+import model.BookAvailability;
+import model.ChangeEvent;
+import model.DataModel;
+import model.BookSearchIndex;
+import util.DatabaseConnection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class BookController extends BaseController<Book> {
     public BookController() {
@@ -9,19 +19,23 @@ public class BookController extends BaseController<Book> {
     }
 
     public boolean addBook(Book book) {
-        boolean result = executeUpdate(
+        Integer isbn = executeQuery(
                 "INSERT INTO books (title, author, genre, deposit_cost, rental_cost_per_day) VALUES (?, ?, ?, ?, ?)",
-                book.getTitle(), book.getAuthor(), book.getGenre(),
-                book.getDepositCost(), book.getRentalCostPerDay()
+                rs -> rs.next() ? rs.getInt(1) : -1,
+                Statement.RETURN_GENERATED_KEYS,
+                new Object[]{book.getTitle(), book.getAuthor(), book.getGenre(),
+                        book.getDepositCost(), book.getRentalCostPerDay()}
         );
 
-        if (result) {
+        if (isbn != null && isbn > 0) {
+            BookSearchIndex.put(new Book(isbn, book.getTitle(), book.getAuthor(), book.getGenre(),
+                    book.getDepositCost(), book.getRentalCostPerDay()));
             try {
-                getModel().refreshImmediately();
-                notifyRefreshListeners();
+                getModel().refreshChanges();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            notifyChanged(ChangeEvent.Type.INSERT, isbn);
             return true;
         }
         return false;
@@ -35,14 +49,91 @@ public class BookController extends BaseController<Book> {
         );
 
         if (result) {
+            BookSearchIndex.remove(isbn);
+            DataModel.invalidateBook(isbn);
             try {
-                getModel().refreshImmediately();
-                notifyRefreshListeners();
+                getModel().refreshChanges();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            notifyChanged(ChangeEvent.Type.DELETE, isbn);
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    // Пакетная вставка книг; ISBN возвращаются в порядке книг, модель обновляется один раз в конце
+    public int[] addBooks(Collection<Book> books) throws SQLException {
+        int[] isbns = insertBooks(new ArrayList<>(books));
+        getModel().refreshChanges();
+        notifyChanged(ChangeEvent.Type.INSERT, isbns);
+        return isbns;
+    }
+
+    // Вставка без обновления модели — для импорта, обновляющего модель один раз после всех порций
+    int[] insertBooks(List<Book> rows) throws SQLException {
+        int[] isbns = executeBatchInsert(
+                "INSERT INTO books (title, author, genre, deposit_cost, rental_cost_per_day) VALUES (?, ?, ?, ?, ?)",
+                rows,
+                book -> new Object[]{book.getTitle(), book.getAuthor(), book.getGenre(),
+                        book.getDepositCost(), book.getRentalCostPerDay()}
+        );
+
+        for (int i = 0; i < rows.size(); i++) {
+            Book book = rows.get(i);
+            BookSearchIndex.put(new Book(isbns[i], book.getTitle(), book.getAuthor(), book.getGenre(),
+                    book.getDepositCost(), book.getRentalCostPerDay()));
+        }
+        return isbns;
+    }
+
+    public CompletableFuture<Boolean> addBookAsync(Book book) {
+        return supplyAsync(() -> addBook(book));
+    }
+
+    public CompletableFuture<Boolean> deleteBookAsync(int isbn) {
+        return supplyAsync(() -> deleteBook(isbn));
+    }
+
+    // Поиск по названию, автору и жанру; при первом вызове строит индекс
+    // Заодно строятся счётчики доступности: выбор книги показывает их без обращения к базе
+    public List<Book> searchBooks(String query, int limit) throws SQLException {
+        BookSearchIndex.ensureBuilt(getModel());
+        BookAvailability.ensureLoaded();
+        int[] isbns = BookSearchIndex.search(query, limit);
+        List<Integer> keys = new ArrayList<>(isbns.length);
+        for (int isbn : isbns) {
+            keys.add(isbn);
+        }
+        return getModel().loadByKeys(keys);
+    }
+
+    public CompletableFuture<List<Book>> searchBooksAsync(String query, int limit) {
+        return supplyAsync(() -> searchBooks(query, limit));
+    }
+
+    // Число экземпляров книги; 0 — книга не выдаётся
+    public void setCopies(int isbn, int copies) throws SQLException {
+        if (copies < 0) {
+            throw new IllegalArgumentException("Negative copies: " + copies);
+        }
+        inTransaction(conn -> update(conn,
+                DatabaseConnection.getDialect().upsert("book_copies", "isbn", "copies"), isbn, copies));
+        BookAvailability.setCopies(isbn, copies);
+    }
+
+    public CompletableFuture<Void> setCopiesAsync(int isbn, int copies) {
+        return supplyAsync(() -> {
+            setCopies(isbn, copies);
+            return null;
+        });
+    }
+
+    // Индекс строится в фоне, чтобы первый поиск не ждал прохода по таблице
+    public CompletableFuture<Void> buildSearchIndexAsync() {
+        return supplyAsync(() -> {
+            BookSearchIndex.ensureBuilt(getModel());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package controller;
+
+import model.ChangeEvent;
+import util.DataAccessExecutor;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Накапливает изменения и раз в COALESCE_WINDOW_MS доставляет их слушателям одним событием
+// в потоке JavaFX: пакетная операция над N строками даёт одно обновление, а не N.
+class ChangeNotifier {
+    static final long COALESCE_WINDOW_MS = 50;
+
+    private static final Executor DELAYED_FX = CompletableFuture.delayedExecutor(
+            COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS, DataAccessExecutor.FX);
+
+    private final List<Consumer<ChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, ChangeEvent.Type> pending = new LinkedHashMap<>();
+    private boolean reloadPending;
+    private boolean flushScheduled;
+
+    void addListener(Consumer<ChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Consumer<ChangeEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized void publish(ChangeEvent.Type type, int... ids) {
+        for (int id : ids) {
+            ChangeEvent.Type combined = ChangeEvent.combine(pending.remove(id), type);
+            if (combined != null) {
+                pending.put(id, combined);
+            }
+        }
+        scheduleFlush();
+    }
+
+    synchronized void publish(ChangeEvent event) {
+        event.getChanges().forEach((id, type) -> publish(type, id));
+        if (event.isReload()) {
+            reloadPending = true;
+        }
+        scheduleFlush();
+    }
+
+    synchronized void publishReload() {
+        reloadPending = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled && !listeners.isEmpty()) {
+            flushScheduled = true;
+            DELAYED_FX.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        ChangeEvent event;
+        synchronized (this) {
+            flushScheduled = false;
+            event = new ChangeEvent(pending, reloadPending);
+            pending.clear();
+            reloadPending = false;
+        }
+        if (event.isEmpty()) {
+            return;
+        }
+        for (Consumer<ChangeEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package controller;
 
+import model.ChangeEvent;
 import model.Customer;
+import model.CustomerSearchIndex;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class CustomerController extends BaseController<Customer> {
     public CustomerController() {
@@ -15,9 +21,11 @@ public class CustomerController extends BaseController<Customer> {
                 rs -> {
                     if (rs.next()) {
                         int newId = rs.getInt(1);
+                        CustomerSearchIndex.put(new Customer(newId, customer.getAddress(),
+                                customer.getFullName(), customer.getPhoneNumber()));
                         try {
-                            getModel().refreshImmediately();
-                            notifyRefreshListeners();
+                            getModel().refreshChanges();
+                            notifyChanged(ChangeEvent.Type.INSERT, newId);
                             return newId;
                         } catch (SQLException e) {
                             e.printStackTrace();
@@ -38,14 +46,75 @@ public class CustomerController extends BaseController<Customer> {
         );
 
         if (result) {
+            CustomerSearchIndex.remove(customerId);
             try {
-                getModel().refreshImmediately();
-                notifyRefreshListeners();
+                getModel().refreshChanges();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            notifyChanged(ChangeEvent.Type.DELETE, customerId);
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    // Пакетная вставка клиентов; идентификаторы возвращаются в порядке клиентов
+    public int[] addCustomers(Collection<Customer> customers) throws SQLException {
+        int[] ids = insertCustomers(new ArrayList<>(customers));
+        getModel().refreshChanges();
+        notifyChanged(ChangeEvent.Type.INSERT, ids);
+        return ids;
+    }
+
+    int[] insertCustomers(List<Customer> rows) throws SQLException {
+        int[] ids = executeBatchInsert(
+                "INSERT INTO customers (address, full_name, phone_number) VALUES (?, ?, ?)",
+                rows,
+                customer -> new Object[]{customer.getAddress(), customer.getFullName(), customer.getPhoneNumber()}
+        );
+
+        for (int i = 0; i < rows.size(); i++) {
+            Customer customer = rows.get(i);
+            CustomerSearchIndex.put(new Customer(ids[i], customer.getAddress(),
+                    customer.getFullName(), customer.getPhoneNumber()));
+        }
+        return ids;
+    }
+
+    public CompletableFuture<Integer> addCustomerAsync(Customer customer) {
+        return supplyAsync(() -> addCustomer(customer));
+    }
+
+    public CompletableFuture<Boolean> deleteCustomerAsync(int customerId) {
+        return supplyAsync(() -> deleteCustomer(customerId));
+    }
+
+    // Лучшие совпадения по началу ФИО или номера телефона
+    public List<Customer> searchCustomers(String query, int limit) throws SQLException {
+        CustomerSearchIndex.ensureBuilt(getModel());
+        int[] ids = CustomerSearchIndex.search(query, limit);
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            keys.add(id);
+        }
+        return getModel().loadByKeys(keys);
+    }
+
+    public CompletableFuture<List<Customer>> searchCustomersAsync(String query, int limit) {
+        return supplyAsync(() -> searchCustomers(query, limit));
+    }
+
+    public CompletableFuture<Void> buildSearchIndexAsync() {
+        return supplyAsync(() -> {
+            CustomerSearchIndex.ensureBuilt(getModel());
+            return null;
+        });
+    }
+
+    public CompletableFuture<Customer> getCustomerAsync(int customerId) {
+        return supplyAsync(() -> {
+            List<Customer> found = getModel().loadByKeys(List.of(customerId));
+            return found.isEmpty() ? null : found.get(0);
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package controller;
+
+import model.Book;
+import model.Customer;
+import model.DataModel;
+import model.Order;
+import util.CsvReader;
+import util.CsvWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Потоковый импорт и экспорт книг, клиентов и заказов в CSV (UTF-8, заголовок — имена столбцов базы).
+// Экспорт читает таблицу курсором, импорт вставляет строки пакетами; память не зависит от размера файла.
+public class DataTransferController {
+    private static final int IMPORT_CHUNK_SIZE = BaseController.BATCH_SIZE * 10;
+
+    private final BookController bookController = new BookController();
+    private final CustomerController customerController = new CustomerController();
+    private final OrderController orderController = new OrderController();
+
+    public long exportBooks(Path file) throws IOException, SQLException {
+        return export(bookController.getModel(), file);
+    }
+
+    public long exportCustomers(Path file) throws IOException, SQLException {
+        return export(customerController.getModel(), file);
+    }
+
+    public long exportOrders(Path file) throws IOException, SQLException {
+        return export(orderController.getModel(), file);
+    }
+
+    // Ключевые столбцы при импорте игнорируются: база выдаёт новые ключи
+    public long importBooks(Path file) throws IOException, SQLException {
+        long count = importRows(file,
+                List.of("title", "author", "genre", "deposit_cost", "rental_cost_per_day"),
+                row -> new Book(0, row.get("title"), row.get("author"), row.get("genre"),
+                        new BigDecimal(row.get("deposit_cost")), new BigDecimal(row.get("rental_cost_per_day"))),
+                bookController::insertBooks);
+        bookController.getModel().refreshChanges();
+        bookController.notifyReload();
+        return count;
+    }
+
+    public long importCustomers(Path file) throws IOException, SQLException {
+        long count = importRows(file,
+                List.of("full_name", "address", "phone_number"),
+                row -> new Customer(0, row.get("address"), row.get("full_name"), row.get("phone_number")),
+                customerController::insertCustomers);
+        customerController.getModel().refreshChanges();
+        customerController.notifyReload();
+        return count;
+    }
+
+    // Клиенты и книги заказов должны уже существовать. Импорт переносит историю выдач из другой системы
+    // как есть, поэтому свободные экземпляры не проверяются: прошлые заказы могли пересекаться при другом
+    // числе экземпляров. Новые заказы создаются только через OrderController.createOrder(s) с проверкой
+    public long importOrders(Path file) throws IOException, SQLException {
+        long count = importRows(file,
+                List.of("customer_id", "isbn", "issue_date", "return_date"),
+                row -> new Order(0, Integer.parseInt(row.get("customer_id")), Integer.parseInt(row.get("isbn")),
+                        Date.valueOf(row.get("issue_date")),
+                        row.get("return_date") != null ? Date.valueOf(row.get("return_date")) : null),
+                rows -> orderController.insertOrders(rows, false));
+        orderController.getModel().refreshChanges();
+        orderController.notifyReload();
+        return count;
+    }
+
+    public CompletableFuture<Long> runAsync(Transfer transfer) {
+        return orderController.supplyAsync(transfer::run);
+    }
+
+    @FunctionalInterface
+    public interface Transfer {
+        long run() throws IOException, SQLException;
+    }
+
+    private <T> long export(DataModel<T> model, Path file) throws IOException, SQLException {
+        List<String> columns = model.getColumnNames();
+        List<Object> values = new ArrayList<>(columns.size());
+        long[] count = {0};
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            csv.writeRecord(columns);
+            model.forEachRow(item -> {
+                values.clear();
+                for (String column : columns) {
+                    values.add(model.getColumnValue(item, column));
+                }
+                try {
+                    csv.writeRecord(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private <T> long importRows(Path file, List<String> requiredColumns, RowParser<T> parser,
+                                BatchInserter<T> inserter) throws IOException, SQLException {
+        long count = 0;
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                return 0;
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                // Excel добавляет BOM в начало файла
+                String name = i == 0 ? header.get(i).replace("\uFEFF", "") : header.get(i);
+                positions.put(name.trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : requiredColumns) {
+                if (!positions.containsKey(column)) {
+                    throw new IOException("Missing column " + column + " in " + file.getFileName());
+                }
+            }
+
+            List<T> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            List<String> fields;
+            while ((fields = csv.readRecord()) != null) {
+                try {
+                    chunk.add(parser.parse(new Row(positions, fields)));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid record " + csv.getRecordNumber() + ": " + e.getMessage(), e);
+                }
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    inserter.insert(chunk);
+                    count += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inserter.insert(chunk);
+                count += chunk.size();
+            }
+        }
+        return count;
+    }
+
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    @FunctionalInterface
+    private interface BatchInserter<T> {
+        int[] insert(List<T> rows) throws SQLException;
+    }
+
+    // Поля записи по имени столбца; пустое поле — null
+    private static final class Row {
+        private final Map<String, Integer> positions;
+        private final List<String> fields;
+
+        Row(Map<String, Integer> positions, List<String> fields) {
+            this.positions = positions;
+            this.fields = fields;
+        }
+
+        String get(String column) {
+            Integer position = positions.get(column);
+            if (position == null || position >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(position).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
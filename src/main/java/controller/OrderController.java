@@ -1,116 +1,332 @@
 package controller;
 
 import model.*;
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
+import util.DatabaseConnection;
 import java.math.BigDecimal;
 import java.sql.*;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 
 public class OrderController extends BaseController<Order> {
     public OrderController() {
         super(Order.class);
     }
 
+    // Заказы одного клиента: индексированный запрос по customer_id и пакетная загрузка скидок и штрафов
+    public void loadOrdersForCustomer(int customerId) throws SQLException {
+        getModel().setQuery(QuerySpec.all().where("customer_id", QuerySpec.Operator.EQ, customerId));
+    }
+
+    public CompletableFuture<Void> loadOrdersForCustomerAsync(int customerId) {
+        return supplyAsync(() -> {
+            loadOrdersForCustomer(customerId);
+            return null;
+        });
+    }
+
+    // Удаление и вычитание заказа из сводок — одна транзакция
     public boolean deleteOrder(int orderId) {
-        boolean result = executeUpdate("DELETE FROM orders WHERE order_id = ?", orderId);
+        Order deleted;
+        try {
+            deleted = inTransaction(conn -> {
+                Order order = DataModel.loadOrder(conn, orderId, true);
+                if (order == null) {
+                    return null;
+                }
+                update(conn, "DELETE FROM orders WHERE order_id = ?", orderId);
+                RentalRollups.apply(conn, order, -1);
+                return order;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        boolean result = deleted != null;
         if (result) {
+            BookAvailability.orderDeleted(deleted);
             try {
-                getModel().refreshImmediately();
+                getModel().refreshChanges();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            notifyChanged(ChangeEvent.Type.DELETE, orderId);
         }
         return result;
     }
 
+    public CompletableFuture<Boolean> deleteOrderAsync(int orderId) {
+        return supplyAsync(() -> deleteOrder(orderId));
+    }
+
     public int createOrder(int customerId, int isbn, Date issueDate, Date returnDate) {
-        return executeQuery(
-                "INSERT INTO orders (customer_id, isbn, issue_date, return_date) VALUES (?, ?, ?, ?)",
-                rs -> {
-                    if (rs.next()) {
-                        int newId = rs.getInt(1);
-
-                        // Создаем новый объект заказа
-                        Order newOrder = new Order(
-                                newId,
-                                customerId,
-                                isbn,
-                                issueDate,
-                                returnDate
-                        );
+        try {
+            return createOrder(customerId, isbn, issueDate, returnDate, List.of(), List.of()).getOrderId();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // Заказ вместе с начальными скидками и штрафами записывается в одной транзакции на одном соединении.
+    // Возвращается собранный заказ: повторно из базы он не читается.
+    public Order createOrder(int customerId, int isbn, Date issueDate, Date returnDate,
+                             List<Discount> discounts, List<Penalty> penalties) throws SQLException {
+        Order order = inTransaction(conn -> {
+            BookAvailability.reserve(conn, isbn, issueDate, returnDate);
+            int orderId = insertReturningKey(conn,
+                    "INSERT INTO orders (customer_id, isbn, issue_date, return_date) VALUES (?, ?, ?, ?)",
+                    customerId, isbn, issueDate, returnDate);
+            for (Discount discount : discounts) {
+                upsertDiscount(conn, discount);
+                insertDiscountLink(conn, orderId, discount);
+            }
+            for (Penalty penalty : penalties) {
+                upsertPenalty(conn, penalty);
+                insertPenaltyLink(conn, orderId, penalty);
+            }
+            // Заказ собирается целиком и рассчитывается один раз
+            Order created = Order.builder(orderId, customerId, isbn, issueDate, returnDate)
+                    .book(DataModel.findBook(conn, isbn))
+                    .discounts(discounts)
+                    .penalties(penalties)
+                    .build();
+            RentalRollups.apply(conn, created, 1);
+            return created;
+        });
 
-                        // Загружаем ассоциации
-                        DataModel.loadOrderAssociations(newOrder);
+        cacheAssociations(discounts, penalties);
+        BookAvailability.orderCreated(order);
+        getModel().upsert(order);
+        catchUpWithChangeLog();
+        notifyChanged(ChangeEvent.Type.INSERT, order.getOrderId());
+        return order;
+    }
 
-                        // Добавляем в наблюдаемый список
-                        Platform.runLater(() -> {
-                            getModel().getObservableData().add(newOrder);
-                        });
+    // Пакетное создание заказов (customerId, isbn и даты берутся из переданных объектов);
+    // заказы вместе с их книгами подгружаются одним обновлением модели в конце
+    public int[] createOrders(Collection<Order> orders) throws SQLException {
+        int[] ids = insertOrders(new ArrayList<>(orders), true);
+        getModel().refreshChanges();
+        notifyChanged(ChangeEvent.Type.INSERT, ids);
+        return ids;
+    }
 
-                        return newId;
+    // Каждая порция — одна транзакция: checkAvailability — перед вставкой порция проходит
+    // BookAvailability.reserveAll, и пакет не может занять экземпляр дважды (без проверки вставляет только
+    // импорт, см. DataTransferController); после вставки в той же транзакции обновляются сводки — новые
+    // заказы без скидок и штрафов, их итог — стоимость аренды. Откат порции откатывает и её сводки
+    int[] insertOrders(List<Order> rows, boolean checkAvailability) throws SQLException {
+        int[] ids = executeBatchInsert(
+                "INSERT INTO orders (customer_id, isbn, issue_date, return_date) VALUES (?, ?, ?, ?)",
+                rows,
+                order -> new Object[]{order.getCustomerId(), order.getIsbn(), order.getIssueDate(), order.getReturnDate()},
+                new ChunkHook<>() {
+                    @Override
+                    public void beforeInsert(Connection conn, List<Order> chunk) throws SQLException {
+                        if (checkAvailability) {
+                            BookAvailability.reserveAll(conn, chunk);
+                        }
                     }
-                    return -1;
-                },
-                Statement.RETURN_GENERATED_KEYS,
-                new Object[]{customerId, isbn, issueDate, returnDate}
+
+                    @Override
+                    public void afterInsert(Connection conn, List<Order> chunk, int[] keys) throws SQLException {
+                        List<Order> created = new ArrayList<>(chunk.size());
+                        for (int i = 0; i < keys.length; i++) {
+                            Order row = chunk.get(i);
+                            created.add(Order.builder(keys[i], row.getCustomerId(), row.getIsbn(),
+                                            row.getIssueDate(), row.getReturnDate())
+                                    .book(DataModel.findBook(conn, row.getIsbn()))
+                                    .build());
+                        }
+                        RentalRollups.applyAll(conn, created);
+                    }
+                }
         );
+        BookAvailability.ordersChanged(Arrays.stream(ids).boxed().toList());
+        return ids;
     }
 
-    public boolean addDiscountToOrder(int orderId, Discount discount) {
-        boolean success = ensureDiscountExists(discount) &&
-                executeUpdate("INSERT INTO orderdiscounts (order_id, discount_name) VALUES (?, ?)",
-                        orderId, discount.getDiscountName());
+    public CompletableFuture<Integer> createOrderAsync(int customerId, int isbn, Date issueDate, Date returnDate) {
+        return supplyAsync(() -> createOrder(customerId, isbn, issueDate, returnDate));
+    }
 
-        if (success) {
-            refreshSingleOrder(orderId);
+    public CompletableFuture<Order> createOrderAsync(int customerId, int isbn, Date issueDate, Date returnDate,
+                                                     List<Discount> discounts, List<Penalty> penalties) {
+        return supplyAsync(() -> createOrder(customerId, isbn, issueDate, returnDate, discounts, penalties));
+    }
+
+    // Справочник, связь и сводки пишутся в одной транзакции; строка заказа заблокирована до её конца.
+    // Справочник обновляется до чтения заказа, чтобы прежние связи заказа были уже с новой суммой.
+    // Заказ в модели заменяется собранной в транзакции копией без повторного чтения
+    public boolean addDiscountToOrder(int orderId, Discount discount) {
+        Order updated;
+        try {
+            updated = inTransaction(conn -> {
+                upsertDiscount(conn, discount);
+                Order current = lockOrder(conn, orderId);
+                insertDiscountLink(conn, orderId, discount);
+                return updateRollups(conn, current, current.toBuilder().discount(discount).build());
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
         }
-        return success;
+        cacheAssociations(List.of(discount), List.of());
+        getModel().upsert(updated);
+        catchUpWithChangeLog();
+        notifyChanged(ChangeEvent.Type.UPDATE, orderId);
+        return true;
     }
 
     public boolean addPenaltyToOrder(int orderId, Penalty penalty) {
-        boolean success = ensurePenaltyExists(penalty) &&
-                executeUpdate("INSERT INTO orderpenalties (order_id, penalty_name) VALUES (?, ?)",
-                        orderId, penalty.getPenaltyName());
+        Order updated;
+        try {
+            updated = inTransaction(conn -> {
+                upsertPenalty(conn, penalty);
+                Order current = lockOrder(conn, orderId);
+                insertPenaltyLink(conn, orderId, penalty);
+                return updateRollups(conn, current, current.toBuilder().penalty(penalty).build());
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        cacheAssociations(List.of(), List.of(penalty));
+        getModel().upsert(updated);
+        catchUpWithChangeLog();
+        notifyChanged(ChangeEvent.Type.UPDATE, orderId);
+        return true;
+    }
 
-        if (success) {
-            refreshSingleOrder(orderId);
+    // Один штраф из справочника многим заказам в одной транзакции (фоновое начисление за просрочку).
+    // Справочник не пишется: сумма читается с блокировкой строки, чтобы правка администратора не была
+    // перезаписана прежним значением; штрафа нет — исключение. Удалённые заказы и заказы, у которых этот
+    // штраф уже есть, пропускаются; возвращаются ID оштрафованных заказов
+    public List<Integer> addPenaltyToOrders(Collection<Integer> orderIds, String penaltyName) throws SQLException {
+        Penalty[] applied = new Penalty[1];
+        List<Order> updated = inTransaction(conn -> {
+            BigDecimal amount = lockAmount(conn,
+                    "SELECT penalty_amount FROM penalties WHERE penalty_name = ? FOR UPDATE", penaltyName);
+            if (amount == null) {
+                throw new SQLException("Penalty " + penaltyName + " not found");
+            }
+            Penalty penalty = new Penalty(penaltyName, amount);
+            applied[0] = penalty;
+            List<Order> before = new ArrayList<>();
+            List<Order> after = new ArrayList<>();
+            // Блокировки берутся по возрастанию ID, чтобы параллельные пакеты не ждали друг друга по кругу
+            for (int orderId : new TreeSet<>(orderIds)) {
+                Order current = DataModel.loadOrder(conn, orderId, true);
+                if (current == null || hasPenalty(current, penalty.getPenaltyName())) {
+                    continue;
+                }
+                insertPenaltyLink(conn, orderId, penalty);
+                before.add(current);
+                after.add(current.toBuilder().penalty(penalty).build());
+            }
+            if (!after.isEmpty()) {
+                RentalRollups.repriceAll(conn, before, after);
+            }
+            return after;
+        });
+
+        if (updated.isEmpty()) {
+            return List.of();
         }
-        return success;
+        cacheAssociations(List.of(), List.of(applied[0]));
+        int[] ids = new int[updated.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = updated.get(i).getOrderId();
+            if (getModel().isLoaded()) {
+                getModel().upsert(updated.get(i));
+            }
+        }
+        catchUpWithChangeLog();
+        notifyChanged(ChangeEvent.Type.UPDATE, ids);
+        return Arrays.stream(ids).boxed().toList();
     }
 
-    private boolean ensureDiscountExists(Discount discount) {
-        return executeUpdate(
-                "INSERT INTO discounts (discount_name, discount_amount) VALUES (?, ?) " +
-                        "ON DUPLICATE KEY UPDATE discount_amount = VALUES(discount_amount)",
-                discount.getDiscountName(), discount.getDiscountAmount()
-        );
+    private static boolean hasPenalty(Order order, String penaltyName) {
+        for (Penalty penalty : order.getPenalties()) {
+            if (penalty.getPenaltyName().equals(penaltyName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private boolean ensurePenaltyExists(Penalty penalty) {
-        return executeUpdate(
-                "INSERT INTO penalties (penalty_name, penalty_amount) VALUES (?, ?) " +
-                        "ON DUPLICATE KEY UPDATE penalty_amount = VALUES(penalty_amount)",
-                penalty.getPenaltyName(), penalty.getPenaltyAmount()
-        );
+    private Order lockOrder(Connection conn, int orderId) throws SQLException {
+        Order order = DataModel.loadOrder(conn, orderId, true);
+        if (order == null) {
+            throw new SQLException("Order " + orderId + " not found");
+        }
+        return order;
     }
 
-    // Метод для обновления одного заказа
-    private void refreshSingleOrder(int orderId) {
-        Order updatedOrder = getOrderById(orderId);
-        if (updatedOrder != null) {
-            Platform.runLater(() -> {
-                ObservableList<Order> orders = getModel().getObservableData();
-                for (int i = 0; i < orders.size(); i++) {
-                    if (orders.get(i).getOrderId() == orderId) {
-                        orders.set(i, updatedOrder);
-                        break;
-                    }
-                }
-            });
+    private Order updateRollups(Connection conn, Order before, Order after) throws SQLException {
+        RentalRollups.reprice(conn, before, after);
+        return after;
+    }
+
+    public CompletableFuture<Boolean> addDiscountToOrderAsync(int orderId, Discount discount) {
+        return supplyAsync(() -> addDiscountToOrder(orderId, discount));
+    }
+
+    public CompletableFuture<Boolean> addPenaltyToOrderAsync(int orderId, Penalty penalty) {
+        return supplyAsync(() -> addPenaltyToOrder(orderId, penalty));
+    }
+
+    // Новая сумма в справочнике меняет итоги заказов, уже связанных с этой скидкой или штрафом:
+    // к сводке прибавляется разница их итогов. Вызывается до новых связей с ней
+    private void upsertDiscount(Connection conn, Discount discount) throws SQLException {
+        BigDecimal previous = lockAmount(conn,
+                "SELECT discount_amount FROM discounts WHERE discount_name = ? FOR UPDATE", discount.getDiscountName());
+        update(conn, DatabaseConnection.getDialect().upsert("discounts", "discount_name", "discount_amount"),
+                discount.getDiscountName(), discount.getDiscountAmount());
+        if (previous != null && previous.compareTo(discount.getDiscountAmount()) != 0) {
+            RentalRollups.repriceDiscount(conn, discount.getDiscountName(), previous, discount.getDiscountAmount());
         }
     }
 
+    private void upsertPenalty(Connection conn, Penalty penalty) throws SQLException {
+        BigDecimal previous = lockAmount(conn,
+                "SELECT penalty_amount FROM penalties WHERE penalty_name = ? FOR UPDATE", penalty.getPenaltyName());
+        update(conn, DatabaseConnection.getDialect().upsert("penalties", "penalty_name", "penalty_amount"),
+                penalty.getPenaltyName(), penalty.getPenaltyAmount());
+        if (previous != null && previous.compareTo(penalty.getPenaltyAmount()) != 0) {
+            RentalRollups.repricePenalty(conn, penalty.getPenaltyName(), previous, penalty.getPenaltyAmount());
+        }
+    }
+
+    private void insertDiscountLink(Connection conn, int orderId, Discount discount) throws SQLException {
+        update(conn, "INSERT INTO orderdiscounts (order_id, discount_name) VALUES (?, ?)",
+                orderId, discount.getDiscountName());
+    }
+
+    private void insertPenaltyLink(Connection conn, int orderId, Penalty penalty) throws SQLException {
+        update(conn, "INSERT INTO orderpenalties (order_id, penalty_name) VALUES (?, ?)",
+                orderId, penalty.getPenaltyName());
+    }
+
+    private BigDecimal lockAmount(Connection conn, String sql, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBigDecimal(1) : null;
+            }
+        }
+    }
+
+    // Upsert обновил сумму в справочнике — кэш должен видеть то же значение
+    private void cacheAssociations(List<Discount> discounts, List<Penalty> penalties) {
+        discounts.forEach(DataModel::addDiscountToCache);
+        penalties.forEach(DataModel::addPenaltyToCache);
+    }
+
     // Метод для получения заказа по ID
     public Order getOrderById(int orderId) {
         return executeQuery(
@@ -139,14 +355,10 @@ public class OrderController extends BaseController<Order> {
             return BigDecimal.ZERO;
         }
 
-        long diff = order.getReturnDate().getTime() - order.getIssueDate().getTime();
-        long days = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-        days = Math.max(days, 1);
-
         Book book = order.getBook();
         if (book != null) {
-            BigDecimal costPerDay = book.getRentalCostPerDay();
-            return costPerDay.multiply(BigDecimal.valueOf(days));
+            return Money.toDecimal(PricingEngine.rentalCost(
+                    book.getRentalCostPerDayMinor(), order.getIssueEpochDay(), order.getReturnEpochDay()));
         }
         return BigDecimal.ZERO;
     }
@@ -0,0 +1,242 @@
+package controller;
+
+import model.ChangeEvent;
+import model.ChangeLogPoller;
+import util.DatabaseConnection;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Начисление штрафа за просрочку. Открытые заказы (с датой возврата и ещё без этого штрафа) лежат в куче
+// по дате возврата; поток сканера спит до дня, когда истекает ближайший из них, и штрафует просроченные
+// пакетами через OrderController. Новые и изменённые заказы приходят из опроса журнала изменений.
+// Всё состояние принадлежит одному потоку планировщика, поток JavaFX не используется.
+public class OverdueScanner {
+    private static final int QUERY_CHUNK_SIZE = 1000;
+    private static final long RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final OrderController orderController;
+    private final String penaltyName;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "overdue-scanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // День возврата в старших 32 битах, ID заказа — в младших: порядок кучи совпадает с порядком дат
+    private final PriorityQueue<Long> queue = new PriorityQueue<>();
+    // Актуальный день возврата заказа в очереди; запись кучи с другим днём устарела и пропускается
+    private final Map<Integer, Integer> returnDays = new HashMap<>();
+    // Штраф есть в справочнике; сумму при начислении читает OrderController.addPenaltyToOrders
+    private boolean penaltyFound;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpDay = Long.MAX_VALUE;
+
+    public OverdueScanner(OrderController orderController, String penaltyName, int batchSize) {
+        this.orderController = orderController;
+        this.penaltyName = penaltyName;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    public void start() {
+        orderController.getModel().addChangeListener(this::onChange);
+        submit(this::reload);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // Вызывается из потока ChangeLogPoller; работа передаётся потоку сканера
+    private void onChange(ChangeEvent event) {
+        if (event.isReload()) {
+            submit(this::reload);
+            return;
+        }
+        Set<Integer> deleted = event.getIds(ChangeEvent.Type.DELETE);
+        Set<Integer> upserts = new HashSet<>(event.getIds(ChangeEvent.Type.INSERT));
+        upserts.addAll(event.getIds(ChangeEvent.Type.UPDATE));
+        submit(() -> {
+            deleted.forEach(returnDays::remove);
+            track(upserts);
+        });
+    }
+
+    // Полная загрузка открытых заказов: при старте и когда журнал не позволяет разобрать изменения
+    private void reload() throws SQLException {
+        queue.clear();
+        returnDays.clear();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            penaltyFound = penaltyExists(conn);
+            if (!penaltyFound) {
+                System.err.println("Overdue penalty '" + penaltyName + "' not found, scanner idle");
+                return;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(openOrdersQuery(""))) {
+                pstmt.setFetchSize(DatabaseConnection.getDialect().getStreamingFetchSize());
+                pstmt.setString(1, penaltyName);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        enqueue(rs.getInt(1), rs.getDate(2));
+                    }
+                }
+            }
+        }
+        scan();
+    }
+
+    // Перечитывает даты возврата указанных заказов; удалённые и уже оштрафованные выпадают из очереди
+    private void track(Set<Integer> orderIds) throws SQLException {
+        if (orderIds.isEmpty() || !penaltyFound) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(orderIds);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+                Set<Integer> open = new HashSet<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(openOrdersQuery(
+                        " AND o.order_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")"))) {
+                    pstmt.setString(1, penaltyName);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 2, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            open.add(rs.getInt(1));
+                            enqueue(rs.getInt(1), rs.getDate(2));
+                        }
+                    }
+                }
+                for (int id : chunk) {
+                    if (!open.contains(id)) {
+                        returnDays.remove(id);
+                    }
+                }
+            }
+        }
+        scan();
+    }
+
+    // Штрафует один пакет просроченных заказов; если просроченных больше, следующий пакет ставится в очередь
+    // потока сразу, иначе сканер засыпает до ближайшей даты возврата
+    private void scan() {
+        if (!penaltyFound) {
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        List<Integer> batch = new ArrayList<>();
+        while (!queue.isEmpty() && dayOf(queue.peek()) < today && batch.size() < batchSize) {
+            long entry = queue.poll();
+            int orderId = (int) entry;
+            Integer day = returnDays.get(orderId);
+            if (day != null && day == dayOf(entry)) {
+                returnDays.remove(orderId);
+                batch.add(orderId);
+            }
+        }
+        if (batch.isEmpty()) {
+            scheduleWakeUp(today);
+            return;
+        }
+
+        try {
+            List<Integer> penalized = orderController.addPenaltyToOrders(batch, penaltyName);
+            System.out.println("Overdue penalty applied to " + penalized.size() + " orders");
+        } catch (SQLException | RuntimeException e) {
+            // Пакет возвращается в очередь и повторяется позже
+            System.err.println("Overdue penalty batch failed: " + e.getMessage());
+            submit(() -> track(new HashSet<>(batch)), RETRY_DELAY_MS);
+            return;
+        }
+        submit(this::scan);
+    }
+
+    private void scheduleWakeUp(long today) {
+        while (!queue.isEmpty() && !isCurrent(queue.peek())) {
+            queue.poll();
+        }
+        // Заказ становится просроченным на следующий день после даты возврата
+        long next = queue.isEmpty() ? Long.MAX_VALUE : dayOf(queue.peek()) + 1;
+        if (!ChangeLogPoller.isRunning()) {
+            // Без опроса журнала новые заказы не приходят — раз в сутки очередь перечитывается целиком
+            next = Math.min(next, today + 1);
+        }
+        if (wakeUp != null && !wakeUp.isDone() && wakeUpDay == next) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        wakeUpDay = next;
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        long delay = Math.max(Duration.between(LocalDateTime.now(), LocalDate.ofEpochDay(next).atStartOfDay()).toMillis(), 0);
+        wakeUp = submit(ChangeLogPoller.isRunning() ? this::scan : this::reload, delay);
+    }
+
+    private void enqueue(int orderId, java.sql.Date returnDate) {
+        int day = Math.toIntExact(returnDate.toLocalDate().toEpochDay());
+        Integer previous = returnDays.put(orderId, day);
+        if (previous == null || previous != day) {
+            queue.add(((long) day << 32) | (orderId & 0xFFFFFFFFL));
+        }
+    }
+
+    private boolean isCurrent(long entry) {
+        Integer day = returnDays.get((int) entry);
+        return day != null && day == dayOf(entry);
+    }
+
+    private static int dayOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private boolean penaltyExists(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM penalties WHERE penalty_name = ?")) {
+            pstmt.setString(1, penaltyName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Заказы с датой возврата, которым этот штраф ещё не начислен; первый параметр — имя штрафа
+    private static String openOrdersQuery(String filter) {
+        return "SELECT o.order_id, o.return_date FROM orders o WHERE o.return_date IS NOT NULL" +
+                " AND NOT EXISTS (SELECT 1 FROM orderpenalties op WHERE op.order_id = o.order_id AND op.penalty_name = ?)" +
+                filter;
+    }
+
+    private void submit(Task task) {
+        submit(task, 0);
+    }
+
+    private ScheduledFuture<?> submit(Task task, long delayMillis) {
+        if (scheduler.isShutdown()) {
+            return null;
+        }
+        try {
+            return scheduler.schedule(() -> {
+                try {
+                    task.run();
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Overdue scan failed: " + e.getMessage());
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws SQLException;
+    }
+}
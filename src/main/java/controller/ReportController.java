@@ -0,0 +1,71 @@
+package controller;
+
+import model.RentalRollups;
+import model.RentalStat;
+import model.RentalSummary;
+import util.DataAccessExecutor;
+import util.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Отчёты по заказам из сводных таблиц: каждый запрос читает несколько строк сводки, а не все заказы
+public class ReportController {
+
+    // Сначала к накопленной просрочке добавляются дни, прошедшие с прошлого отчёта (обычно один)
+    public RentalSummary getSummary(LocalDate date) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                RentalRollups.rollOverdue(conn, LocalDate.now());
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return RentalRollups.summary(conn, date);
+        }
+    }
+
+    public List<RentalStat> getStats(RentalRollups.Dimension dimension, int limit) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return RentalRollups.stats(conn, dimension, limit);
+        }
+    }
+
+    // Полный пересчёт сводки по заказам в одной транзакции — сверка после сбоев или ручных правок базы.
+    // На время пересчёта строки сводки заблокированы, и записи заказов ждут его окончания
+    public void rebuild() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                RentalRollups.rebuild(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    public CompletableFuture<RentalSummary> getSummaryAsync(LocalDate date) {
+        return DataAccessExecutor.supply(() -> getSummary(date));
+    }
+
+    public CompletableFuture<List<RentalStat>> getStatsAsync(RentalRollups.Dimension dimension, int limit) {
+        return DataAccessExecutor.supply(() -> getStats(dimension, limit));
+    }
+
+    public CompletableFuture<Void> rebuildAsync() {
+        return DataAccessExecutor.supply(() -> {
+            rebuild();
+            return null;
+        });
+    }
+}
@@ -9,6 +9,7 @@ public class Book {
     private String genre;
     private BigDecimal depositCost;
     private BigDecimal rentalCostPerDay;
+    private final long rentalCostPerDayMinor;
 
     public Book(int isbn, String title, String author, String genre,
                 BigDecimal depositCost, BigDecimal rentalCostPerDay) {
@@ -18,6 +19,7 @@ public class Book {
         this.genre = genre;
         this.depositCost = depositCost;
         this.rentalCostPerDay = rentalCostPerDay;
+        this.rentalCostPerDayMinor = Money.toMinor(rentalCostPerDay);
     }
 
     // Геттеры и сеттеры
@@ -33,6 +35,9 @@ public class Book {
 
     public BigDecimal getRentalCostPerDay() { return rentalCostPerDay; }
 
+    // Цена за день в копейках для PricingEngine
+    public long getRentalCostPerDayMinor() { return rentalCostPerDayMinor; }
+
     @Override
     public String toString() {
         return title + " (" + author + ")";
@@ -0,0 +1,546 @@
+package model;
+
+import util.DatabaseConnection;
+import util.SchemaBootstrap;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Доступность книг: число экземпляров (book_copies, без строки — один) и текущие и будущие заказы.
+// Счётчики в памяти строятся одним запросом по индексу дат возврата и правятся по заказам: при создании
+// и удалении заказов этим клиентом и по изменённым заказам и экземплярам из опроса журнала (ordersChanged,
+// copiesChanged), которые перечитываются по ключам. Ответ для выбора книги — проход по заказам одной книги
+// без запросов к базе. Окончательная проверка без двойной выдачи — reserve() в транзакции создания заказа.
+public final class BookAvailability {
+    public static final int DEFAULT_COPIES = 1;
+
+    private static final String COPIES_TABLE = "book_copies";
+    // Дата возврата не указана — экземпляр занят бессрочно
+    private static final int OPEN_END = Integer.MAX_VALUE;
+    private static final int[] NO_LOANS = new int[0];
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    // Отсортированные дни выдачи и дни окончания заказов, не закончившихся к сегодняшнему дню (выданных
+    // и будущих), и число экземпляров по ISBN
+    private static final Map<Integer, int[]> starts = new HashMap<>();
+    private static final Map<Integer, int[]> ends = new HashMap<>();
+    private static final Map<Integer, Integer> copies = new HashMap<>();
+    // Эти заказы: order_id -> {isbn, день выдачи, день окончания}; по ним снимается прежнее состояние заказа
+    private static final Map<Integer, int[]> loanOrders = new HashMap<>();
+    // Таблица экземпляров есть в базе; null — ещё не проверялось. Без неё у каждой книги один экземпляр
+    private static volatile Boolean copiesTable;
+    // День, на который построены счётчики; Long.MIN_VALUE — не построены
+    private static long loadedDay = Long.MIN_VALUE;
+    // Число сбросов: построение, начатое до сброса, не публикуется
+    private static long invalidations;
+    // Пока счётчики строятся — заказы и ISBN экземпляров, изменённые за это время (перечитываются после
+    // публикации); иначе null
+    private static Set<Integer> missedOrders;
+    private static Set<Integer> missedCopies;
+
+    // Построение счётчиков идёт вне монитора класса: get() из потока JavaFX не ждёт запросов к базе
+    private static final ReentrantLock loadLock = new ReentrantLock();
+
+    private BookAvailability() {
+        // Приватный конструктор для предотвращения инстанцирования
+    }
+
+    public static final class Status {
+        private final int copies;
+        private final int onLoan;
+        private final LocalDate nextFreeDate;
+        private final LocalDate busyFrom;
+
+        Status(int copies, int onLoan, LocalDate nextFreeDate, LocalDate busyFrom) {
+            this.copies = copies;
+            this.onLoan = onLoan;
+            this.nextFreeDate = nextFreeDate;
+            this.busyFrom = busyFrom;
+        }
+
+        public int getCopies() { return copies; }
+
+        public int getOnLoan() { return onLoan; }
+
+        public int getFree() { return Math.max(copies - onLoan, 0); }
+
+        public boolean isAvailable() { return onLoan < copies; }
+
+        // Сегодня, если экземпляр свободен; null — экземпляры заняты заказами без даты возврата
+        public LocalDate getNextFreeDate() { return nextFreeDate; }
+
+        // Свободный сегодня экземпляр — день, с которого все экземпляры заняты будущими заказами;
+        // null — свободен без ограничения
+        public LocalDate getBusyFrom() { return busyFrom; }
+    }
+
+    // Строит счётчики на сегодня, если они не построены или построены вчера. Запросы выполняются без
+    // монитора класса; изменения, пришедшие за это время, перечитываются после публикации
+    public static void ensureLoaded() throws SQLException {
+        long today = LocalDate.now().toEpochDay();
+        loadLock.lock();
+        try {
+            long generation;
+            synchronized (BookAvailability.class) {
+                if (loadedDay == today) {
+                    return;
+                }
+                generation = invalidations;
+                missedOrders = new HashSet<>();
+                missedCopies = new HashSet<>();
+            }
+            Map<Integer, int[]> loadedOrders = new HashMap<>();
+            Map<Integer, Integer> loadedCopies = new HashMap<>();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                // Две ветки вместо OR, чтобы обе шли по индексу return_date; заказ, возвращённый сегодня,
+                // но выданный сегодня же, занимает экземпляр день — точный отбор по endDay ниже
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT order_id, isbn, issue_date, return_date FROM orders WHERE return_date >= ? " +
+                                "UNION ALL SELECT order_id, isbn, issue_date, return_date FROM orders WHERE return_date IS NULL")) {
+                    pstmt.setDate(1, java.sql.Date.valueOf(LocalDate.ofEpochDay(today)));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (rs.getDate(3) == null) {
+                                continue;
+                            }
+                            int start = toDay(rs.getDate(3));
+                            int end = endDay(start, toDay(rs.getDate(4)));
+                            if (end > today) {
+                                loadedOrders.put(rs.getInt(1), new int[]{rs.getInt(2), start, end});
+                            }
+                        }
+                    }
+                }
+                if (hasCopiesTable(conn)) {
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT isbn, copies FROM book_copies")) {
+                        while (rs.next()) {
+                            loadedCopies.put(rs.getInt(1), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+            Map<Integer, List<int[]>> byIsbn = new HashMap<>();
+            loadedOrders.values().forEach(loan -> byIsbn.computeIfAbsent(loan[0], k -> new ArrayList<>()).add(loan));
+            Set<Integer> missed;
+            Set<Integer> missedIsbns;
+            synchronized (BookAvailability.class) {
+                // Сброс во время построения: прочитанное могло устареть, следующее обращение построит заново
+                if (loadedDay == today || invalidations != generation) {
+                    return;
+                }
+                starts.clear();
+                ends.clear();
+                byIsbn.forEach((isbn, isbnLoans) -> {
+                    starts.put(isbn, sorted(isbnLoans, 1));
+                    ends.put(isbn, sorted(isbnLoans, 2));
+                });
+                loanOrders.clear();
+                loanOrders.putAll(loadedOrders);
+                copies.clear();
+                copies.putAll(loadedCopies);
+                loadedDay = today;
+                missed = missedOrders;
+                missedIsbns = missedCopies;
+            }
+            copiesChanged(missedIsbns);
+            ordersChanged(missed);
+        } finally {
+            synchronized (BookAvailability.class) {
+                missedOrders = null;
+                missedCopies = null;
+            }
+            loadLock.unlock();
+        }
+    }
+
+    public static synchronized boolean isLoaded() {
+        return loadedDay == LocalDate.now().toEpochDay();
+    }
+
+    public static synchronized void invalidate() {
+        loadedDay = Long.MIN_VALUE;
+        invalidations++;
+    }
+
+    // null, пока счётчики не построены (ensureLoaded вызывается в фоне, например при поиске книг)
+    public static synchronized Status get(int isbn) {
+        long today = LocalDate.now().toEpochDay();
+        if (loadedDay != today) {
+            return null;
+        }
+        int total = copies.getOrDefault(isbn, DEFAULT_COPIES);
+        int[] loanStarts = starts.getOrDefault(isbn, NO_LOANS);
+        int[] loanEnds = ends.getOrDefault(isbn, NO_LOANS);
+        // Все заказы заканчиваются после сегодня, поэтому сегодня заняты экземпляры уже выданных
+        int next = upperBound(loanStarts, today);
+        int onLoan = next;
+        if (total <= 0) {
+            return new Status(total, onLoan, null, null);
+        }
+        boolean freeToday = onLoan < total;
+        // Проход по дням выдачи и окончания будущих заказов до первого дня, когда свободный экземпляр
+        // появляется (занято сегодня) или пропадает (свободно сегодня)
+        int found = OPEN_END;
+        int busy = onLoan;
+        int closed = 0;
+        while (next < loanStarts.length || (closed < loanEnds.length && loanEnds[closed] != OPEN_END)) {
+            int day = next < loanStarts.length ? loanStarts[next] : OPEN_END;
+            if (closed < loanEnds.length) {
+                day = Math.min(day, loanEnds[closed]);
+            }
+            for (; next < loanStarts.length && loanStarts[next] == day; next++) {
+                busy++;
+            }
+            for (; closed < loanEnds.length && loanEnds[closed] == day; closed++) {
+                busy--;
+            }
+            if (freeToday ? busy >= total : busy < total) {
+                found = day;
+                break;
+            }
+        }
+        LocalDate foundDate = found != OPEN_END ? LocalDate.ofEpochDay(found) : null;
+        return freeToday
+                ? new Status(total, onLoan, LocalDate.ofEpochDay(today), foundDate)
+                : new Status(total, onLoan, foundDate, null);
+    }
+
+    // Проверка в транзакции создания заказа. Строка книги блокируется до конца транзакции, поэтому
+    // параллельные заказы одной книги проверяются по очереди и не могут занять один экземпляр дважды.
+    // Интервал заказа — [выдача, возврат), но не короче одного дня, как и при расчёте стоимости
+    public static void reserve(Connection conn, int isbn, java.sql.Date issueDate, java.sql.Date returnDate) throws SQLException {
+        lockBook(conn, isbn);
+        check(conn, isbn, readCopies(conn, isbn), issueDate, returnDate, List.of());
+    }
+
+    // Пакет новых заказов до их вставки: каждый проверяется и против заказов в базе, и против уже
+    // проверенных заказов пакета. Книги блокируются по возрастанию ISBN, чтобы параллельные пакеты
+    // не ждали друг друга по кругу
+    public static void reserveAll(Connection conn, List<Order> orders) throws SQLException {
+        Map<Integer, List<Order>> byIsbn = new TreeMap<>();
+        for (Order order : orders) {
+            byIsbn.computeIfAbsent(order.getIsbn(), k -> new ArrayList<>()).add(order);
+        }
+        for (Map.Entry<Integer, List<Order>> entry : byIsbn.entrySet()) {
+            int isbn = entry.getKey();
+            lockBook(conn, isbn);
+            int total = readCopies(conn, isbn);
+            List<int[]> accepted = new ArrayList<>();
+            for (Order order : entry.getValue()) {
+                accepted.add(check(conn, isbn, total, order.getIssueDate(), order.getReturnDate(), accepted));
+            }
+        }
+    }
+
+    private static void lockBook(Connection conn, int isbn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT isbn FROM books WHERE isbn = ? FOR UPDATE")) {
+            pstmt.setInt(1, isbn);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Book " + isbn + " not found");
+                }
+            }
+        }
+    }
+
+    // Интервал заказа {начало, конец}, если для него есть свободный экземпляр с учётом pending —
+    // ещё не записанных заказов той же книги; иначе BookUnavailableException
+    private static int[] check(Connection conn, int isbn, int total, java.sql.Date issueDate, java.sql.Date returnDate,
+                               List<int[]> pending) throws SQLException {
+        if (total <= 0) {
+            throw new BookUnavailableException(isbn, null);
+        }
+        int start = toDay(issueDate);
+        int end = endDay(start, toDay(returnDate));
+
+        // Пересекающиеся заказы: выборка по индексу внешнего ключа isbn, точная проверка — ниже
+        List<int[]> overlapping = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT issue_date, return_date FROM orders WHERE isbn = ? AND (return_date IS NULL OR return_date >= ?)" +
+                        (end != OPEN_END ? " AND issue_date < ?" : ""))) {
+            pstmt.setInt(1, isbn);
+            pstmt.setDate(2, issueDate);
+            if (end != OPEN_END) {
+                pstmt.setDate(3, java.sql.Date.valueOf(LocalDate.ofEpochDay(end)));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int loanStart = toDay(rs.getDate(1));
+                    addOverlap(overlapping, loanStart, endDay(loanStart, toDay(rs.getDate(2))), start, end);
+                }
+            }
+        }
+        for (int[] loan : pending) {
+            addOverlap(overlapping, loan[0], loan[1], start, end);
+        }
+        if (overlapping.size() < total) {
+            return new int[]{start, end};
+        }
+
+        // Наибольшее число одновременно выданных экземпляров внутри интервала — проход по событиям
+        overlapping.sort(Comparator.comparingInt(loan -> loan[0]));
+        PriorityQueue<Integer> ends = new PriorityQueue<>();
+        for (int[] loan : overlapping) {
+            while (!ends.isEmpty() && ends.peek() <= loan[0]) {
+                ends.poll();
+            }
+            ends.add(loan[1]);
+            if (ends.size() >= total) {
+                int freeDay = ends.peek();
+                throw new BookUnavailableException(isbn, freeDay != OPEN_END ? LocalDate.ofEpochDay(freeDay) : null);
+            }
+        }
+        return new int[]{start, end};
+    }
+
+    private static void addOverlap(List<int[]> overlapping, int loanStart, int loanEnd, int start, int end) {
+        if (loanStart < end && start < loanEnd) {
+            overlapping.add(new int[]{Math.max(loanStart, start), loanEnd});
+        }
+    }
+
+    // Заказы этого клиента — после фиксации транзакции; учитываются выданные и будущие
+    public static synchronized void orderCreated(Order order) {
+        long today = LocalDate.now().toEpochDay();
+        if (loadedDay != today) {
+            missed(order.getOrderId());
+            return;
+        }
+        removeLoan(order.getOrderId());
+        addLoan(order, today);
+    }
+
+    public static synchronized void orderDeleted(Order order) {
+        if (loadedDay == LocalDate.now().toEpochDay()) {
+            removeLoan(order.getOrderId());
+        } else {
+            missed(order.getOrderId());
+        }
+    }
+
+    // Заказы, изменённые другими клиентами (опрос журнала): строки перечитываются по ключам, прежнее
+    // состояние заказа снимается со счётчика его книги, новое добавляется. Свои записи, уже учтённые
+    // orderCreated и orderDeleted, при этом не задваиваются
+    public static void ordersChanged(Collection<Integer> orderIds) throws SQLException {
+        long today = LocalDate.now().toEpochDay();
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        synchronized (BookAvailability.class) {
+            if (loadedDay != today) {
+                orderIds.forEach(BookAvailability::missed);
+                return;
+            }
+        }
+        List<Integer> ids = new ArrayList<>(orderIds);
+        Map<Integer, Order> current = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT order_id, customer_id, isbn, issue_date, return_date FROM orders WHERE order_id IN ("
+                                + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            current.put(rs.getInt(1), new Order(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                                    rs.getDate(4), rs.getDate(5)));
+                        }
+                    }
+                }
+            }
+        }
+        synchronized (BookAvailability.class) {
+            // Счётчики сброшены или строятся заново — заказы перечитает построение
+            if (loadedDay != today) {
+                ids.forEach(BookAvailability::missed);
+                return;
+            }
+            for (int orderId : ids) {
+                removeLoan(orderId);
+                Order order = current.get(orderId);
+                if (order != null) {
+                    addLoan(order, today);
+                }
+            }
+        }
+    }
+
+    // Изменение пришло, пока счётчики не построены: если они строятся, заказ перечитается после публикации
+    private static void missed(int orderId) {
+        if (missedOrders != null) {
+            missedOrders.add(orderId);
+        }
+    }
+
+    // Заказ без даты выдачи или закончившийся до завтра экземпляр не занимает
+    private static void addLoan(Order order, long today) {
+        if (order.getIssueDate() == null) {
+            return;
+        }
+        int start = order.getIssueEpochDay();
+        int end = endDay(start, order.getReturnDate() != null ? order.getReturnEpochDay() : OPEN_END);
+        if (end <= today) {
+            return;
+        }
+        loanOrders.put(order.getOrderId(), new int[]{order.getIsbn(), start, end});
+        starts.put(order.getIsbn(), insert(starts.getOrDefault(order.getIsbn(), NO_LOANS), start));
+        ends.put(order.getIsbn(), insert(ends.getOrDefault(order.getIsbn(), NO_LOANS), end));
+    }
+
+    private static void removeLoan(int orderId) {
+        int[] loan = loanOrders.remove(orderId);
+        if (loan == null) {
+            return;
+        }
+        removeDay(starts, loan[0], loan[1]);
+        removeDay(ends, loan[0], loan[2]);
+    }
+
+    private static int[] insert(int[] days, int day) {
+        int position = upperBound(days, day);
+        int[] updated = new int[days.length + 1];
+        System.arraycopy(days, 0, updated, 0, position);
+        updated[position] = day;
+        System.arraycopy(days, position, updated, position + 1, days.length - position);
+        return updated;
+    }
+
+    private static void removeDay(Map<Integer, int[]> byIsbn, int isbn, int day) {
+        int[] days = byIsbn.get(isbn);
+        int position = days != null ? Arrays.binarySearch(days, day) : -1;
+        if (position < 0) {
+            return;
+        }
+        if (days.length == 1) {
+            byIsbn.remove(isbn);
+            return;
+        }
+        int[] updated = new int[days.length - 1];
+        System.arraycopy(days, 0, updated, 0, position);
+        System.arraycopy(days, position + 1, updated, position, days.length - position - 1);
+        byIsbn.put(isbn, updated);
+    }
+
+    // Число дней в отсортированном массиве, не больших day
+    private static int upperBound(int[] days, long day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public static synchronized void setCopies(int isbn, int count) {
+        copies.put(isbn, count);
+        if (missedCopies != null) {
+            missedCopies.add(isbn);
+        }
+    }
+
+    // Экземпляры, изменённые другими клиентами (опрос журнала): перечитываются по ISBN, удалённая строка —
+    // снова один экземпляр по умолчанию
+    public static void copiesChanged(Collection<Integer> isbns) throws SQLException {
+        long today = LocalDate.now().toEpochDay();
+        if (isbns.isEmpty()) {
+            return;
+        }
+        synchronized (BookAvailability.class) {
+            if (loadedDay != today) {
+                missedCopies(isbns);
+                return;
+            }
+        }
+        List<Integer> ids = new ArrayList<>(isbns);
+        Map<Integer, Integer> current = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!hasCopiesTable(conn)) {
+                return;
+            }
+            for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT isbn, copies FROM book_copies WHERE isbn IN ("
+                                + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            current.put(rs.getInt(1), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+        }
+        synchronized (BookAvailability.class) {
+            if (loadedDay != today) {
+                missedCopies(ids);
+                return;
+            }
+            for (int isbn : ids) {
+                Integer count = current.get(isbn);
+                if (count != null) {
+                    copies.put(isbn, count);
+                } else {
+                    copies.remove(isbn);
+                }
+            }
+        }
+    }
+
+    private static void missedCopies(Collection<Integer> isbns) {
+        if (missedCopies != null) {
+            missedCopies.addAll(isbns);
+        }
+    }
+
+    private static int readCopies(Connection conn, int isbn) throws SQLException {
+        if (!hasCopiesTable(conn)) {
+            return DEFAULT_COPIES;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT copies FROM book_copies WHERE isbn = ?")) {
+            pstmt.setInt(1, isbn);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : DEFAULT_COPIES;
+            }
+        }
+    }
+
+    private static boolean hasCopiesTable(Connection conn) throws SQLException {
+        Boolean exists = copiesTable;
+        if (exists == null) {
+            exists = SchemaBootstrap.tablesExist(conn, COPIES_TABLE);
+            copiesTable = exists;
+        }
+        return exists;
+    }
+
+    private static int endDay(int start, int end) {
+        return end == OPEN_END ? OPEN_END : Math.max(end, start + 1);
+    }
+
+    private static int toDay(java.sql.Date date) {
+        return date != null ? Math.toIntExact(date.toLocalDate().toEpochDay()) : OPEN_END;
+    }
+
+    // Поле field заказов {isbn, выдача, окончание} по возрастанию
+    private static int[] sorted(List<int[]> loans, int field) {
+        int[] result = new int[loans.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = loans.get(i)[field];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+import java.sql.SQLException;
+
+// Общий для всех представлений полнотекстовый индекс книг по названию, автору и жанру
+public final class BookSearchIndex {
+    private static final int[] FIELD_WEIGHTS = {3, 2, 1};
+
+    private static final SearchIndex index = new SearchIndex();
+    private static volatile boolean built;
+
+    private BookSearchIndex() {
+        // Приватный конструктор для предотвращения инстанцирования
+    }
+
+    // Строит индекс один раз, проходя по всей таблице книг
+    public static synchronized void ensureBuilt(DataModel<Book> model) throws SQLException {
+        if (built) {
+            return;
+        }
+        model.forEachRow(BookSearchIndex::put);
+        built = true;
+    }
+
+    public static boolean isBuilt() {
+        return built;
+    }
+
+    // Сбрасывает индекс; следующий ensureBuilt построит его заново
+    public static synchronized void invalidate() {
+        index.clear();
+        built = false;
+    }
+
+    public static void put(Book book) {
+        index.put(book.getIsbn(),
+                new String[]{book.getTitle(), book.getAuthor(), book.getGenre()},
+                FIELD_WEIGHTS);
+    }
+
+    public static void remove(int isbn) {
+        index.remove(isbn);
+    }
+
+    // ISBN по убыванию релевантности
+    public static int[] search(String query, int limit) {
+        return index.search(query, limit);
+    }
+}
@@ -0,0 +1,22 @@
+package model;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Все экземпляры книги заняты на даты заказа; транзакция создания заказа откатывается
+public class BookUnavailableException extends SQLException {
+    private final int isbn;
+    private final LocalDate nextFreeDate;
+
+    public BookUnavailableException(int isbn, LocalDate nextFreeDate) {
+        super("Нет свободного экземпляра книги на эти даты"
+                + (nextFreeDate != null ? " (освободится " + nextFreeDate + ")" : ""));
+        this.isbn = isbn;
+        this.nextFreeDate = nextFreeDate;
+    }
+
+    public int getIsbn() { return isbn; }
+
+    // null — все пересекающиеся заказы без даты возврата
+    public LocalDate getNextFreeDate() { return nextFreeDate; }
+}
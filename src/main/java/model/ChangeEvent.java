@@ -0,0 +1,89 @@
+package model;
+
+import util.ChangeLog;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Изменения строк одной таблицы за интервал: ключ -> итоговый тип изменения.
+// reload = true означает, что ключи неизвестны (например, после импорта) и данные нужно перечитать целиком.
+public final class ChangeEvent {
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    private final Map<Integer, Type> changes;
+    private final boolean reload;
+
+    public ChangeEvent(Map<Integer, Type> changes, boolean reload) {
+        this.changes = Collections.unmodifiableMap(new LinkedHashMap<>(changes));
+        this.reload = reload;
+    }
+
+    public boolean isReload() {
+        return reload;
+    }
+
+    public boolean isEmpty() {
+        return !reload && changes.isEmpty();
+    }
+
+    public Map<Integer, Type> getChanges() {
+        return changes;
+    }
+
+    public Set<Integer> getIds(Type type) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        changes.forEach((id, changeType) -> {
+            if (changeType == type) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    // Новые или изменённые строки, которые слушателю придётся перечитать
+    public boolean hasUpserts() {
+        return changes.containsValue(Type.INSERT) || changes.containsValue(Type.UPDATE);
+    }
+
+    // Итоговое изменение каждой строки по записям журнала одной таблицы
+    public static ChangeEvent fromChanges(List<ChangeLog.Change> changes) {
+        Map<Integer, Type> rows = new LinkedHashMap<>();
+        for (ChangeLog.Change change : changes) {
+            Type combined = combine(rows.remove(change.getRowId()), toType(change.getOperation()));
+            if (combined != null) {
+                rows.put(change.getRowId(), combined);
+            }
+        }
+        return new ChangeEvent(rows, false);
+    }
+
+    private static Type toType(char operation) {
+        return switch (operation) {
+            case ChangeLog.INSERT -> Type.INSERT;
+            case ChangeLog.DELETE -> Type.DELETE;
+            default -> Type.UPDATE;
+        };
+    }
+
+    // Итог двух последовательных изменений одной строки; null — строка появилась и исчезла в одном интервале
+    public static Type combine(Type previous, Type next) {
+        if (previous == null) {
+            return next;
+        }
+        if (previous == Type.INSERT) {
+            return next == Type.DELETE ? null : Type.INSERT;
+        }
+        if (previous == Type.DELETE && next == Type.INSERT) {
+            return Type.UPDATE;
+        }
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return reload ? "ChangeEvent{reload}" : "ChangeEvent" + changes;
+    }
+}
@@ -0,0 +1,244 @@
+package model;
+
+import util.ChangeLog;
+import util.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Опрос журнала изменений, общего для всех клиентов. Раз в интервал выполняется дешёвый запрос
+// MAX(change_id); только если он вырос или остались пропущенные номера (см. ChangeLog.Cursor), читаются
+// новые записи и изменения адресно доставляются зарегистрированным моделям, общим кэшам книг
+// и справочников и индексам поиска.
+public final class ChangeLogPoller {
+    // Больше записей за один опрос — дешевле перечитать всё, чем разбирать дельту
+    private static final int MAX_ROUTED_CHANGES = 10_000;
+    // Пауза между неудачными опросами удваивается до этого предела
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // Модели держатся слабо: закрытое представление не должно удерживаться опросом
+    private static final Set<DataModel<?>> models = Collections.newSetFromMap(new WeakHashMap<>());
+    // Отдельные модели только для чтения строк по ключам — без окна, страниц и слушателей
+    private static final DataModel<Book> bookReader = new DataModel<>(Book.class);
+    private static final DataModel<Customer> customerReader = new DataModel<>(Customer.class);
+
+    private static ScheduledExecutorService scheduler;
+    private static long intervalMillis;
+    private static long backoffMillis;
+    // Последний опрос прошёл успешно: только тогда моделям можно полагаться на доставку изменений
+    private static volatile boolean running;
+    // Позиция опроса; null — журнал ещё не читался
+    private static ChangeLog.Cursor cursor;
+
+    private ChangeLogPoller() {
+    }
+
+    public static synchronized void start(long intervalMillis) {
+        if (scheduler != null || intervalMillis <= 0) {
+            return;
+        }
+        ChangeLogPoller.intervalMillis = intervalMillis;
+        backoffMillis = intervalMillis;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "changelog-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule(0);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        running = false;
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static void register(DataModel<?> model) {
+        synchronized (models) {
+            models.add(model);
+        }
+    }
+
+    private static synchronized void schedule(long delayMillis) {
+        if (scheduler != null) {
+            scheduler.schedule(ChangeLogPoller::pollSafely, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void pollSafely() {
+        long delay;
+        try {
+            poll();
+            running = true;
+            backoffMillis = intervalMillis;
+            delay = intervalMillis;
+        } catch (SQLException | RuntimeException e) {
+            // Журнал недоступен — модели возвращаются к обычному таймауту кэша и перечитывают справочники сами
+            if (running || backoffMillis == intervalMillis) {
+                System.err.println("Changelog poll failed, retrying with backoff: " + e.getMessage());
+            }
+            running = false;
+            delay = backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, Math.max(MAX_BACKOFF_MS, intervalMillis));
+        }
+        schedule(delay);
+    }
+
+    static void poll() throws SQLException {
+        Map<String, List<ChangeLog.Change>> changes = null;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // Первый опрос только запоминает позицию: модели загружаются со своей позицией журнала
+            if (cursor == null) {
+                cursor = ChangeLog.Cursor.atEnd(conn);
+                return;
+            }
+            long latest = ChangeLog.latestVersion(conn);
+            if (!cursor.isBehind(latest)) {
+                return;
+            }
+            if (latest >= cursor.getVersion() && latest - cursor.getVersion() <= MAX_ROUTED_CHANGES) {
+                List<ChangeLog.Change> routed = cursor.advance(conn, latest);
+                changes = routed != null ? groupByTable(routed) : null;
+            }
+            if (changes == null) {
+                // Модели перечитываются целиком — опрос продолжается с конца журнала
+                cursor = ChangeLog.Cursor.atEnd(conn);
+            }
+        }
+
+        if (changes == null) {
+            routeReload();
+        } else {
+            for (Map.Entry<String, List<ChangeLog.Change>> entry : changes.entrySet()) {
+                route(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Записи журнала по таблицам в порядке номеров; итог по строкам считает ChangeEvent.fromChanges
+    private static Map<String, List<ChangeLog.Change>> groupByTable(List<ChangeLog.Change> changes) {
+        Map<String, List<ChangeLog.Change>> result = new LinkedHashMap<>();
+        for (ChangeLog.Change change : changes) {
+            result.computeIfAbsent(change.getTableName(), t -> new ArrayList<>()).add(change);
+        }
+        return result;
+    }
+
+    private static void route(String table, List<ChangeLog.Change> changes) throws SQLException {
+        ChangeEvent event = ChangeEvent.fromChanges(changes);
+        switch (table) {
+            case "books" -> {
+                DataModel.evictBooks(event.getChanges().keySet());
+                updateBookIndex(event);
+            }
+            case "customers" -> updateCustomerIndex(event);
+            case "orders" -> BookAvailability.ordersChanged(event.getChanges().keySet());
+            case "book_copies" -> {
+                BookAvailability.copiesChanged(event.getChanges().keySet());
+                return;
+            }
+            case "discounts", "penalties" -> {
+                DataModel.reloadDictionaries();
+                // Суммы скидок и штрафов входят в итоги заказов — заказы перечитываются целиком, но только
+                // если сумма изменилась или запись удалена: новая запись ещё не привязана ни к одному заказу
+                if (changes.stream().anyMatch(change -> change.getOperation() != ChangeLog.INSERT)) {
+                    notifyModels("orders", new ChangeEvent(Map.of(), true));
+                }
+                return;
+            }
+            default -> {
+            }
+        }
+        notifyModels(table, changes);
+    }
+
+    private static void routeReload() throws SQLException {
+        DataModel.evictBooks(null);
+        DataModel.reloadDictionaries();
+        BookSearchIndex.invalidate();
+        CustomerSearchIndex.invalidate();
+        BookAvailability.invalidate();
+        ChangeEvent reload = new ChangeEvent(Map.of(), true);
+        for (String table : List.of("books", "customers", "orders", "users")) {
+            notifyModels(table, reload);
+        }
+    }
+
+    private static void notifyModels(String table, ChangeEvent event) throws SQLException {
+        for (DataModel<?> model : modelsOf(table)) {
+            model.applyExternalChanges(event);
+        }
+    }
+
+    private static void notifyModels(String table, List<ChangeLog.Change> changes) throws SQLException {
+        for (DataModel<?> model : modelsOf(table)) {
+            model.applyExternalChanges(changes);
+        }
+    }
+
+    private static List<DataModel<?>> modelsOf(String table) {
+        List<DataModel<?>> targets = new ArrayList<>();
+        synchronized (models) {
+            for (DataModel<?> model : models) {
+                if (model.getTableName().equals(table)) {
+                    targets.add(model);
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static void updateBookIndex(ChangeEvent event) throws SQLException {
+        event.getIds(ChangeEvent.Type.DELETE).forEach(BookSearchIndex::remove);
+        if (!BookSearchIndex.isBuilt()) {
+            return;
+        }
+        List<Integer> changed = upsertedIds(event);
+        if (changed.isEmpty()) {
+            return;
+        }
+        // Заодно возвращает свежие книги в общий кэш
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Set<Integer> missing = new HashSet<>(changed);
+            for (Book book : bookReader.fetchByKeys(conn, changed)) {
+                BookSearchIndex.put(book);
+                missing.remove(book.getIsbn());
+            }
+            missing.forEach(BookSearchIndex::remove);
+        }
+    }
+
+    private static void updateCustomerIndex(ChangeEvent event) throws SQLException {
+        event.getIds(ChangeEvent.Type.DELETE).forEach(CustomerSearchIndex::remove);
+        if (!CustomerSearchIndex.isBuilt()) {
+            return;
+        }
+        List<Integer> changed = upsertedIds(event);
+        if (changed.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Set<Integer> missing = new HashSet<>(changed);
+            for (Customer customer : customerReader.fetchByKeys(conn, changed)) {
+                CustomerSearchIndex.put(customer);
+                missing.remove(customer.getCustomerId());
+            }
+            missing.forEach(CustomerSearchIndex::remove);
+        }
+    }
+
+    private static List<Integer> upsertedIds(ChangeEvent event) {
+        List<Integer> ids = new ArrayList<>(event.getIds(ChangeEvent.Type.INSERT));
+        ids.addAll(event.getIds(ChangeEvent.Type.UPDATE));
+        return ids;
+    }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.sql.SQLException;
+
+// Индекс клиентов для поиска «на лету» по префиксам ФИО и номера телефона
+public final class CustomerSearchIndex {
+    private static final int[] FIELD_WEIGHTS = {2, 1};
+
+    private static final SearchIndex index = new SearchIndex();
+    private static volatile boolean built;
+
+    private CustomerSearchIndex() {
+        // Приватный конструктор для предотвращения инстанцирования
+    }
+
+    public static synchronized void ensureBuilt(DataModel<Customer> model) throws SQLException {
+        if (built) {
+            return;
+        }
+        model.forEachRow(CustomerSearchIndex::put);
+        built = true;
+    }
+
+    public static boolean isBuilt() {
+        return built;
+    }
+
+    // Сбрасывает индекс; следующий ensureBuilt построит его заново
+    public static synchronized void invalidate() {
+        index.clear();
+        built = false;
+    }
+
+    public static void put(Customer customer) {
+        index.put(customer.getCustomerId(),
+                new String[]{customer.getFullName(), phoneVariants(customer.getPhoneNumber())},
+                FIELD_WEIGHTS);
+    }
+
+    public static void remove(int customerId) {
+        index.remove(customerId);
+    }
+
+    // Запрос, похожий на номер телефона, ищется по цифрам без разделителей. Каждый номер —
+    // отдельный термин, так что префикс «912» раскрывается во все номера диапазона целиком
+    public static int[] search(String query, int limit) {
+        return index.search(looksLikePhone(query) ? digits(query) : query, limit);
+    }
+
+    // Номер индексируется целиком и без кода страны, чтобы находились и «+7 912…», и «8 912…», и «912…»
+    private static String phoneVariants(String phone) {
+        String digits = digits(phone);
+        if (digits.length() == 11 && (digits.charAt(0) == '7' || digits.charAt(0) == '8')) {
+            String national = digits.substring(1);
+            return national + " 7" + national + " 8" + national;
+        }
+        return digits;
+    }
+
+    private static boolean looksLikePhone(String query) {
+        boolean hasDigit = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isDigit(c)) {
+                hasDigit = true;
+            } else if ("+-() ".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    private static String digits(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,34 +1,159 @@
 package model;
 
-import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import util.ChangeLog;
+import util.DataAccessExecutor;
+import util.DatabaseConfig;
 import util.DatabaseConnection;
+import util.IntObjectMap;
+import util.SchemaBootstrap;
+import util.BoundedCache;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 public class DataModel<T> {
     private final Class<T> type;
     private final List<T> dataCache = Collections.synchronizedList(new ArrayList<>());
     private final ObservableList<T> observableData = FXCollections.observableArrayList();
     private long lastCacheUpdate;
+    // Позиция в changelog, до которой применены изменения; null — синхронизации ещё не было
+    private ChangeLog.Cursor syncCursor;
+    private static volatile boolean changeLogAvailable = true;
     private static final long CACHE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    // Пока ChangeLogPoller доставляет изменения, таймаут — только страховка от пропущенных записей
+    private static final long POLLED_CACHE_TIMEOUT = TimeUnit.MINUTES.toMillis(DatabaseConfig.getPolledCacheTimeoutMinutes());
+    private static final int ASSOCIATION_CHUNK_SIZE = 1000;
 
-    private static final Map<Integer, Book> bookCache = new ConcurrentHashMap<>();
-    private static final Map<String, Discount> discountCache = new ConcurrentHashMap<>();
-    private static final Map<String, Penalty> penaltyCache = new ConcurrentHashMap<>();
+    // Ёмкость и срок жизни задаются в database.properties (db.cache.<имя>.size / .ttlMinutes)
+    private static final BoundedCache<Integer, Book> bookCache = createCache("books", 10_000, 60);
+    private static final BoundedCache<String, Discount> discountCache = createCache("discounts", 1_000, 0);
+    private static final BoundedCache<String, Penalty> penaltyCache = createCache("penalties", 1_000, 0);
+    // Справочники скидок и штрафов загружены и, пока работает опрос журнала, актуальны
+    private static volatile boolean dictionariesLoaded;
 
     private final Map<String, Function<ResultSet, T>> mappers = new HashMap<>();
+    private final List<Consumer<ChangeEvent>> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ChangeEvent>> unpublishedListeners = new CopyOnWriteArrayList<>();
+    // Строки, о которых контроллер уже объявил после своей записи: ключ -> позиция журнала модели
+    // в тот момент. Записи журнала, покрытые позицией, опрос этим слушателям повторно не доставляет
+    private final Map<Integer, ChangeLog.Cursor> publishedLocally = new HashMap<>();
+    private final ToIntFunction<T> keyExtractor;
+    // Индекс по первичному ключу; dataCache и observableData упорядочены компаратором order
+    private final IntObjectMap<T> index = new IntObjectMap<>();
+    // Допустимые в QuerySpec столбцы и доступ к их значениям в памяти
+    private final Map<String, Function<T, Object>> columns;
+    private QuerySpec query = QuerySpec.all();
+    private Comparator<T> order;
+    // Чтения из базы выполняются по очереди под loadLock, без монитора модели: он берётся только
+    // для публикации результата, поэтому getById/indexOf не ждут сетевых запросов, а виртуальные
+    // потоки не закрепляются за несущим на время JDBC-вызовов
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    // Страничный режим: в памяти держится окно не более чем из maxPages страниц по pageSize строк
+    private int pageSize;
+    private int maxPages;
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+    private CompletableFuture<List<T>> prefetchedPage;
+    private T prefetchedAfter;
 
     public DataModel(Class<T> type) {
         this.type = type;
         this.lastCacheUpdate = 0;
+        this.keyExtractor = resolveKeyExtractor();
+        this.columns = resolveColumns();
+        this.order = keyExtractor != null ? buildComparator(query) : null;
         initializeMappers();
     }
 
+    // Целочисленный первичный ключ; у скидок и штрафов ключ строковый, для них null
+    private ToIntFunction<T> resolveKeyExtractor() {
+        if (type == Book.class) return item -> ((Book) item).getIsbn();
+        if (type == Customer.class) return item -> ((Customer) item).getCustomerId();
+        if (type == Order.class) return item -> ((Order) item).getOrderId();
+        if (type == User.class) return item -> ((User) item).getUserId();
+        return null;
+    }
+
+    private Map<String, Function<T, Object>> resolveColumns() {
+        Map<String, Function<T, Object>> result = new LinkedHashMap<>();
+        if (type == Book.class) {
+            result.put("isbn", item -> ((Book) item).getIsbn());
+            result.put("title", item -> ((Book) item).getTitle());
+            result.put("author", item -> ((Book) item).getAuthor());
+            result.put("genre", item -> ((Book) item).getGenre());
+            result.put("deposit_cost", item -> ((Book) item).getDepositCost());
+            result.put("rental_cost_per_day", item -> ((Book) item).getRentalCostPerDay());
+        } else if (type == Customer.class) {
+            result.put("customer_id", item -> ((Customer) item).getCustomerId());
+            result.put("full_name", item -> ((Customer) item).getFullName());
+            result.put("address", item -> ((Customer) item).getAddress());
+            result.put("phone_number", item -> ((Customer) item).getPhoneNumber());
+        } else if (type == Order.class) {
+            result.put("order_id", item -> ((Order) item).getOrderId());
+            result.put("customer_id", item -> ((Order) item).getCustomerId());
+            result.put("isbn", item -> ((Order) item).getIsbn());
+            result.put("issue_date", item -> ((Order) item).getIssueDate());
+            result.put("return_date", item -> ((Order) item).getReturnDate());
+        } else if (type == User.class) {
+            result.put("user_id", item -> ((User) item).getUserId());
+            result.put("username", item -> ((User) item).getUsername());
+            result.put("role", item -> ((User) item).getRole());
+            result.put("customer_id", item -> ((User) item).getCustomerId());
+        }
+        return result;
+    }
+
+    private Function<T, Object> column(String name) {
+        Function<T, Object> accessor = columns.get(name);
+        if (accessor == null) {
+            throw new IllegalArgumentException("Unknown column " + name + " for " + type.getSimpleName());
+        }
+        return accessor;
+    }
+
+    // Порядок строк в памяти повторяет ORDER BY; первичный ключ делает его строгим
+    private Comparator<T> buildComparator(QuerySpec spec) {
+        Comparator<T> result = (a, b) -> 0;
+        for (QuerySpec.SortKey sortKey : spec.getSortKeys()) {
+            Function<T, Object> accessor = column(sortKey.getColumn());
+            Comparator<T> byColumn = (a, b) -> QuerySpec.compareValues(accessor.apply(a), accessor.apply(b));
+            result = result.thenComparing(sortKey.isAscending() ? byColumn : byColumn.reversed());
+        }
+        return result.thenComparingInt(keyExtractor);
+    }
+
+    // Применяет фильтры и сортировку и сразу перечитывает данные (в страничном режиме — первую страницу)
+    public void setQuery(QuerySpec spec) throws SQLException {
+        requireKey();
+        for (QuerySpec.Filter filter : spec.getFilters()) {
+            column(filter.getColumn());
+        }
+        Comparator<T> newOrder = buildComparator(spec);
+        loadLock.lock();
+        try {
+            // Новые фильтры и порядок публикуются вместе с прочитанными по ним строками
+            refreshCache(spec, newOrder);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public synchronized QuerySpec getQuery() {
+        return query;
+    }
+
     private void initializeMappers() {
         mappers.put("Book", rs -> {
             try {
@@ -40,7 +165,6 @@ public class DataModel<T> {
                         rs.getBigDecimal("deposit_cost"),
                         rs.getBigDecimal("rental_cost_per_day")
                 );
-                bookCache.put(book.getIsbn(), book);
                 return type.cast(book);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -66,7 +190,6 @@ public class DataModel<T> {
                         rs.getString("discount_name"),
                         rs.getBigDecimal("discount_amount")
                 );
-                discountCache.put(discount.getDiscountName(), discount);
                 return type.cast(discount);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -82,13 +205,8 @@ public class DataModel<T> {
                         rs.getDate("issue_date"),
                         rs.getDate("return_date")
                 );
-                loadOrderAssociations(order);
-
-                // Устанавливаем книгу напрямую из кэша
-                Book book = bookCache.get(order.getIsbn());
-                if (book != null) {
-                    order.setBook(book);
-                }
+                // Книга, скидки и штрафы привязываются пакетно в loadOrderAssociations после чтения всех строк,
+                // там же заказ рассчитывается — один раз
                 return type.cast(order);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -101,7 +219,6 @@ public class DataModel<T> {
                         rs.getString("penalty_name"),
                         rs.getBigDecimal("penalty_amount")
                 );
-                penaltyCache.put(penalty.getPenaltyName(), penalty);
                 return type.cast(penalty);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
@@ -123,13 +240,16 @@ public class DataModel<T> {
         });
     }
 
+    // В страничном режиме возвращает только текущее окно строк
     public List<T> getAll() throws SQLException {
+        boolean stale;
         synchronized (this) {
-            if (shouldRefreshCache()) {
-                refreshCache();
-            }
-            return Collections.unmodifiableList(dataCache);
+            stale = shouldRefreshCache();
+        }
+        if (stale) {
+            refreshChanges();
         }
+        return Collections.unmodifiableList(dataCache);
     }
 
     public ObservableList<T> getObservableData() {
@@ -137,42 +257,800 @@ public class DataModel<T> {
     }
 
     private boolean shouldRefreshCache() {
-        return System.currentTimeMillis() - lastCacheUpdate > CACHE_TIMEOUT || dataCache.isEmpty();
+        long timeout = ChangeLogPoller.isRunning() ? POLLED_CACHE_TIMEOUT : CACHE_TIMEOUT;
+        return System.currentTimeMillis() - lastCacheUpdate > timeout || dataCache.isEmpty();
+    }
+
+    // Модель уже читала данные из базы (иначе точечные upsert в неё не нужны)
+    public synchronized boolean isLoaded() {
+        return lastCacheUpdate > 0;
+    }
+
+    // Модель загружена с позицией журнала: refreshChanges дочитывает дельту, а не перечитывает всё
+    public boolean followsChangeLog() {
+        loadLock.lock();
+        try {
+            return syncCursor != null && changeLogAvailable;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Изменения, сделанные другими клиентами; вызывается из потока ChangeLogPoller
+    public void addChangeListener(Consumer<ChangeEvent> listener) {
+        changeListeners.add(listener);
+    }
+
+    // То же, но без строк, уже объявленных через markPublished
+    public void addUnpublishedChangeListener(Consumer<ChangeEvent> listener) {
+        unpublishedListeners.add(listener);
+    }
+
+    // Контроллер объявил о своей записи этих строк. Позиция журнала модели после её refreshChanges
+    // покрывает записи журнала этой записи — опрос не перечитает и не объявит их второй раз.
+    // Позиция после присваивания syncCursor не меняется, поэтому хранится без копии
+    public void markPublished(int... keys) {
+        loadLock.lock();
+        try {
+            if (syncCursor == null) {
+                return;
+            }
+            synchronized (this) {
+                for (int key : keys) {
+                    publishedLocally.put(key, syncCursor);
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Загруженная модель дочитывает дельту (или перезагружается), слушатели получают событие.
+    // Незагруженная модель в базу не ходит — её данные прочитаются при первом обращении.
+    void applyExternalChanges(ChangeEvent event) throws SQLException {
+        if (isLoaded()) {
+            if (event.isReload()) {
+                refreshImmediately();
+            } else {
+                refreshChanges();
+            }
+        }
+        deliver(event, event);
+    }
+
+    // Дельта из опроса журнала. Если позиция модели уже покрывает все записи (модель дочитала их после
+    // своей записи), перечитывать нечего; строки, объявленные через markPublished, не объявляются снова
+    void applyExternalChanges(List<ChangeLog.Change> changes) throws SQLException {
+        ChangeLog.Cursor cursor;
+        loadLock.lock();
+        try {
+            cursor = syncCursor;
+        } finally {
+            loadLock.unlock();
+        }
+        boolean behind = cursor == null || changes.stream().anyMatch(change -> !cursor.covers(change.getChangeId()));
+        if (behind && isLoaded()) {
+            refreshChanges();
+        }
+
+        List<ChangeLog.Change> unpublished = new ArrayList<>(changes.size());
+        synchronized (this) {
+            for (ChangeLog.Change change : changes) {
+                ChangeLog.Cursor mark = publishedLocally.get(change.getRowId());
+                if (mark == null || !mark.covers(change.getChangeId())) {
+                    unpublished.add(change);
+                }
+            }
+            for (ChangeLog.Change change : changes) {
+                publishedLocally.remove(change.getRowId());
+            }
+        }
+        deliver(ChangeEvent.fromChanges(changes), ChangeEvent.fromChanges(unpublished));
+    }
+
+    private void deliver(ChangeEvent event, ChangeEvent unpublished) {
+        for (Consumer<ChangeEvent> listener : changeListeners) {
+            listener.accept(event);
+        }
+        if (!unpublished.isEmpty()) {
+            for (Consumer<ChangeEvent> listener : unpublishedListeners) {
+                listener.accept(unpublished);
+            }
+        }
     }
 
+    // Полная перезагрузка по текущим фильтрам и порядку; вызывается под loadLock
     private void refreshCache() throws SQLException {
-        String tableName = getTableName();
-        String query = "SELECT * FROM " + tableName;
+        QuerySpec spec;
+        Comparator<T> currentOrder;
+        synchronized (this) {
+            spec = query;
+            currentOrder = order;
+        }
+        refreshCache(spec, currentOrder);
+    }
+
+    private void refreshCache(QuerySpec spec, Comparator<T> newOrder) throws SQLException {
+        if (isPaged()) {
+            loadFirstPage(spec, newOrder);
+            return;
+        }
+
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT * FROM " + getTableName();
+        if (keyExtractor != null) {
+            sql += whereClause(spec, null, true, params) + orderByClause(spec, false);
+        }
+        boolean wholeTable = !spec.hasFilters();
+        // Версию журнала фиксируем до чтения: изменения, попавшие между ними, применятся повторно, а не потеряются
+        ChangeLog.Cursor cursor = readChangeLogCursor();
+
+        // Кэши скидок и штрафов нужны до привязки ассоциаций к заказам
+        ensureDictionariesLoaded();
 
         List<T> newData = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    newData.add(mapResultSetToObject(rs));
+                }
+            }
+        }
+
+        // Для заказов ассоциации загружаем одним проходом по таблицам связей
+        if (type == Order.class) {
+            @SuppressWarnings("unchecked")
+            List<Order> orders = (List<Order>) newData;
+            loadOrderAssociations(orders, wholeTable);
+        }
 
-            while (rs.next()) {
-                T item = mapResultSetToObject(rs);
+        synchronized (this) {
+            query = spec;
+            order = newOrder;
+            prefetchedPage = null;
+            dataCache.clear();
+            dataCache.addAll(newData);
+            rebuildIndex();
+            lastCacheUpdate = System.currentTimeMillis();
+            syncCursor = cursor;
+
+            DataAccessExecutor.FX.execute(() -> observableData.setAll(newData));
+        }
+    }
+
+    // Инкрементальное обновление: применяет только строки, изменённые с последней синхронизации.
+    // Без журнала изменений (или для таблиц без целочисленного ключа) выполняется полная перезагрузка.
+    public void refreshChanges() throws SQLException {
+        loadLock.lock();
+        try {
+            if (keyExtractor == null || !changeLogAvailable || syncCursor == null) {
+                refreshCache();
+                return;
+            }
+
+            String tableName = getTableName();
+            Map<Integer, Character> latestOps = new LinkedHashMap<>();
+            // Позиция сдвигается на копии и заменяет прежнюю, только если дельта применена
+            ChangeLog.Cursor cursor = syncCursor.copy();
+            List<T> fetched;
+
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                long[] range = ChangeLog.versionRange(conn);
+                if (!cursor.isBehind(range[1])) {
+                    synchronized (this) {
+                        lastCacheUpdate = System.currentTimeMillis();
+                    }
+                    return;
+                }
+                // Журнал очищен дальше нашей версии или пересоздан — дельту восстановить нельзя
+                List<ChangeLog.Change> changes = range[0] > cursor.getVersion() + 1 || range[1] < cursor.getVersion()
+                        ? null
+                        : cursor.advance(conn, range[1]);
+                if (changes == null) {
+                    fetched = null;
+                } else {
+                    // Журнал общий для всех таблиц: пропуски номеров видны только по всем записям
+                    for (ChangeLog.Change change : changes) {
+                        if (tableName.equals(change.getTableName())) {
+                            latestOps.remove(change.getRowId());
+                            latestOps.put(change.getRowId(), change.getOperation());
+                        }
+                    }
+
+                    List<Integer> changedKeys = new ArrayList<>();
+                    latestOps.forEach((key, op) -> {
+                        if (op != ChangeLog.DELETE) changedKeys.add(key);
+                    });
+                    fetched = fetchByKeys(conn, changedKeys);
+                }
+            }
+
+            if (fetched == null) {
+                refreshCache();
+                return;
+            }
+
+            if (type == Order.class && !fetched.isEmpty()) {
+                ensureDictionariesLoaded();
+                @SuppressWarnings("unchecked")
+                List<Order> orders = (List<Order>) fetched;
+                loadOrderAssociations(orders);
+            }
 
-                // Для заказов дополнительно загружаем ассоциации
-                if (item instanceof Order) {
-                    loadOrderAssociations((Order) item);
+            // Всё, что не удалось перечитать, к этому моменту уже удалено
+            Set<Integer> removedKeys = new HashSet<>(latestOps.keySet());
+            for (T item : fetched) {
+                removedKeys.remove(keyExtractor.applyAsInt(item));
+            }
+
+            synchronized (this) {
+                if (!latestOps.isEmpty()) {
+                    prefetchedPage = null;
                 }
+                applyChangeSet(fetched, removedKeys);
+                lastCacheUpdate = System.currentTimeMillis();
+            }
+            syncCursor = cursor;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Изменённые строки заменяют прежние экземпляры; строка, не подходящая под фильтр
+    // или вне окна страниц, только удаляется. Один и тот же план применяется к dataCache
+    // сразу и к observableData в потоке JavaFX. Вызывается под блокировкой модели.
+    private void applyChangeSet(List<T> upserts, Set<Integer> removedKeys) {
+        T first = dataCache.isEmpty() ? null : dataCache.get(0);
+        T last = dataCache.isEmpty() ? null : dataCache.get(dataCache.size() - 1);
+
+        List<T> removals = new ArrayList<>();
+        for (int key : removedKeys) {
+            T old = index.remove(key);
+            if (old != null) {
+                removals.add(old);
+            }
+        }
+        List<T> inserts = new ArrayList<>(upserts.size());
+        for (T item : upserts) {
+            int key = keyExtractor.applyAsInt(item);
+            T old = index.remove(key);
+            if (old != null) {
+                removals.add(old);
+            }
+            if (query.matches(item, this::column) && isWithinWindow(item, first, last)) {
+                inserts.add(item);
+                index.put(key, item);
+            }
+        }
+
+        Comparator<T> currentOrder = order;
+        applyPlan(dataCache, removals, inserts, currentOrder);
+        DataAccessExecutor.FX.execute(() -> applyPlan(observableData, removals, inserts, currentOrder));
+    }
+
+    private void applyPlan(List<T> target, List<T> removals, List<T> inserts, Comparator<T> planOrder) {
+        for (T old : removals) {
+            int position = positionOf(target, old, planOrder);
+            if (position >= 0) {
+                target.remove(position);
+            }
+        }
+        for (T item : inserts) {
+            int position = Collections.binarySearch(target, item, planOrder);
+            if (position >= 0) {
+                target.set(position, item);
+            } else {
+                target.add(-position - 1, item);
+            }
+        }
+    }
 
-                newData.add(item);
+    // Бинарный поиск по порядку сортировки; если правила сравнения строк в базе (collation)
+    // разошлись с компаратором, строка ищется по ключу линейно
+    private int positionOf(List<T> list, T item, Comparator<T> listOrder) {
+        int key = keyExtractor.applyAsInt(item);
+        int position = Collections.binarySearch(list, item, listOrder);
+        if (position >= 0 && keyExtractor.applyAsInt(list.get(position)) == key) {
+            return position;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (keyExtractor.applyAsInt(list.get(i)) == key) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    private void rebuildIndex() {
+        if (keyExtractor == null) {
+            return;
+        }
+        index.clear();
+        for (T item : dataCache) {
+            index.put(keyExtractor.applyAsInt(item), item);
+        }
+    }
+
+    private void requireKey() {
+        if (keyExtractor == null) {
+            throw new UnsupportedOperationException("No integer key for: " + type.getSimpleName());
+        }
+    }
+
+    // Поиск по первичному ключу за O(1) среди загруженных строк
+    public T getById(int key) {
+        requireKey();
+        synchronized (this) {
+            return index.get(key);
+        }
+    }
+
+    // Позиция строки в getAll()/getObservableData(); -1, если строка не загружена
+    public int indexOf(int key) {
+        requireKey();
+        synchronized (this) {
+            T item = index.get(key);
+            return item == null ? -1 : positionOf(dataCache, item, order);
+        }
+    }
+
+    // Точечная замена или вставка строки без обращения к базе
+    public void upsert(T item) {
+        requireKey();
+        synchronized (this) {
+            applyChangeSet(Collections.singletonList(item), Collections.emptySet());
+        }
+    }
+
+    public void remove(int key) {
+        requireKey();
+        synchronized (this) {
+            applyChangeSet(Collections.emptyList(), Collections.singleton(key));
+        }
+    }
+
+    public void enablePaging(int pageSize, int maxPages) {
+        requireKey();
+        if (pageSize <= 0 || maxPages < 2) {
+            throw new IllegalArgumentException("Invalid paging: " + pageSize + " x " + maxPages);
+        }
+        synchronized (this) {
+            this.pageSize = pageSize;
+            this.maxPages = maxPages;
+        }
+    }
+
+    public boolean isPaged() {
+        return pageSize > 0;
+    }
+
+    public synchronized boolean hasMoreBefore() {
+        return hasMoreBefore;
+    }
 
-        refreshDiscountAndPenaltyCache();
+    public synchronized boolean hasMoreAfter() {
+        return hasMoreAfter;
+    }
+
+    private void loadFirstPage(QuerySpec spec, Comparator<T> newOrder) throws SQLException {
+        ChangeLog.Cursor cursor = readChangeLogCursor();
+        ensureDictionariesLoaded();
+        List<T> page = fetchPage(spec, null, true);
 
         synchronized (this) {
+            query = spec;
+            order = newOrder;
+            prefetchedPage = null;
             dataCache.clear();
-            dataCache.addAll(newData);
+            dataCache.addAll(page);
+            rebuildIndex();
+            hasMoreBefore = false;
+            hasMoreAfter = page.size() == pageSize;
             lastCacheUpdate = System.currentTimeMillis();
+            syncCursor = cursor;
+
+            DataAccessExecutor.FX.execute(() -> observableData.setAll(page));
+            prefetchNextPage();
+        }
+    }
+
+    // Дочитывает страницу после последней строки окна; при переполнении окна вытесняет строки с начала
+    public boolean loadNextPage() throws SQLException {
+        if (!isPaged()) {
+            return false;
+        }
+        loadLock.lock();
+        try {
+            T lastRow;
+            QuerySpec spec;
+            CompletableFuture<List<T>> pending;
+            synchronized (this) {
+                if (dataCache.isEmpty()) {
+                    lastRow = null;
+                } else if (!hasMoreAfter) {
+                    return false;
+                } else {
+                    lastRow = dataCache.get(dataCache.size() - 1);
+                }
+                spec = query;
+                pending = lastRow != null && prefetchedAfter == lastRow ? prefetchedPage : null;
+                prefetchedPage = null;
+            }
+            if (lastRow == null) {
+                refreshCache();
+                synchronized (this) {
+                    return !dataCache.isEmpty();
+                }
+            }
+
+            List<T> page = join(pending);
+            if (page == null) {
+                page = fetchPage(spec, lastRow, true);
+            }
+
+            synchronized (this) {
+                // Окно сменилось, пока читалась страница (перезагрузка или новый запрос) — страница не подходит
+                if (query != spec || dataCache.isEmpty() || !hasMoreAfter) {
+                    return false;
+                }
+                hasMoreAfter = page.size() == pageSize;
+                if (page.isEmpty()) {
+                    return false;
+                }
+
+                dataCache.addAll(page);
+                for (T item : page) {
+                    index.put(keyExtractor.applyAsInt(item), item);
+                }
+                int evicted = Math.max(0, dataCache.size() - pageSize * maxPages);
+                if (evicted > 0) {
+                    List<T> head = dataCache.subList(0, evicted);
+                    for (T item : head) {
+                        index.remove(keyExtractor.applyAsInt(item));
+                    }
+                    head.clear();
+                    hasMoreBefore = true;
+                }
 
-            Platform.runLater(() -> observableData.setAll(newData));
+                List<T> appended = page;
+                DataAccessExecutor.FX.execute(() -> {
+                    observableData.addAll(appended);
+                    if (evicted > 0) {
+                        observableData.remove(0, evicted);
+                    }
+                });
+                prefetchNextPage();
+                return true;
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Дочитывает страницу перед первой строкой окна; при переполнении вытесняет строки с конца
+    public boolean loadPreviousPage() throws SQLException {
+        if (!isPaged()) {
+            return false;
+        }
+        loadLock.lock();
+        try {
+            T firstRow;
+            QuerySpec spec;
+            synchronized (this) {
+                if (dataCache.isEmpty() || !hasMoreBefore) {
+                    return false;
+                }
+                firstRow = dataCache.get(0);
+                spec = query;
+            }
+
+            List<T> page = fetchPage(spec, firstRow, false);
+
+            synchronized (this) {
+                if (query != spec || dataCache.isEmpty() || !hasMoreBefore) {
+                    return false;
+                }
+                hasMoreBefore = page.size() == pageSize;
+                if (page.isEmpty()) {
+                    return false;
+                }
+
+                dataCache.addAll(0, page);
+                for (T item : page) {
+                    index.put(keyExtractor.applyAsInt(item), item);
+                }
+                int limit = pageSize * maxPages;
+                int evicted = Math.max(0, dataCache.size() - limit);
+                if (evicted > 0) {
+                    List<T> tail = dataCache.subList(limit, dataCache.size());
+                    for (T item : tail) {
+                        index.remove(keyExtractor.applyAsInt(item));
+                    }
+                    tail.clear();
+                    hasMoreAfter = true;
+                    prefetchedPage = null;
+                }
+
+                List<T> prepended = page;
+                DataAccessExecutor.FX.execute(() -> {
+                    observableData.addAll(0, prepended);
+                    if (evicted > 0) {
+                        observableData.remove(limit, observableData.size());
+                    }
+                });
+                return true;
+            }
+        } finally {
+            loadLock.unlock();
         }
     }
 
-    private String getTableName() {
+    // Keyset-пагинация: строки строго после (или до) граничной в порядке ORDER BY, LIMIT n
+    private List<T> fetchPage(QuerySpec spec, T boundary, boolean forward) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT * FROM " + getTableName()
+                + whereClause(spec, boundary, forward, params)
+                + orderByClause(spec, !forward)
+                + " LIMIT " + pageSize;
+
+        List<T> page = new ArrayList<>(pageSize);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(mapResultSetToObject(rs));
+                }
+            }
+        }
+        if (!forward) {
+            Collections.reverse(page);
+        }
+
+        if (type == Order.class && !page.isEmpty()) {
+            @SuppressWarnings("unchecked")
+            List<Order> orders = (List<Order>) page;
+            loadOrderAssociations(orders);
+        }
+        return page;
+    }
+
+    // Фильтры спецификации плюс, для страниц, условие продолжения после граничной строки
+    private String whereClause(QuerySpec spec, T boundary, boolean forward, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        for (QuerySpec.Filter filter : spec.getFilters()) {
+            column(filter.getColumn());
+            conditions.add(filter.getColumn() + " " + filter.getOperator().getSql() + " ?"
+                    + (filter.getOperator() == QuerySpec.Operator.LIKE
+                            ? " ESCAPE " + DatabaseConnection.getDialect().likeEscape() : ""));
+            params.add(filter.getSqlValue());
+        }
+        if (boundary != null) {
+            conditions.add(seekCondition(spec, boundary, forward, params));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // (s1 > v1) OR (s1 = v1 AND s2 > v2) OR ... OR (s1 = v1 AND ... AND key > k);
+    // для чтения назад все направления меняются на противоположные
+    private String seekCondition(QuerySpec spec, T boundary, boolean forward, List<Object> params) {
+        List<String> seekColumns = new ArrayList<>();
+        List<Boolean> ascending = new ArrayList<>();
+        for (QuerySpec.SortKey sortKey : spec.getSortKeys()) {
+            seekColumns.add(sortKey.getColumn());
+            ascending.add(sortKey.isAscending());
+        }
+        seekColumns.add(getKeyColumn());
+        ascending.add(true);
+
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < seekColumns.size(); i++) {
+            if (i > 0) {
+                sb.append(" OR ");
+            }
+            sb.append('(');
+            for (int j = 0; j < i; j++) {
+                sb.append(equalsCondition(seekColumns.get(j), column(seekColumns.get(j)).apply(boundary), params))
+                        .append(" AND ");
+            }
+            String seekColumn = seekColumns.get(i);
+            sb.append(afterCondition(seekColumn, column(seekColumn).apply(boundary), ascending.get(i) == forward, params));
+            sb.append(')');
+        }
+        return sb.append(')').toString();
+    }
+
+    // NULL при сортировке считается наименьшим значением
+    private static String afterCondition(String column, Object value, boolean ascending, List<Object> params) {
+        if (ascending) {
+            if (value == null) {
+                return column + " IS NOT NULL";
+            }
+            params.add(value);
+            return column + " > ?";
+        }
+        if (value == null) {
+            return "1 = 0";
+        }
+        params.add(value);
+        return "(" + column + " < ? OR " + column + " IS NULL)";
+    }
+
+    private static String equalsCondition(String column, Object value, List<Object> params) {
+        if (value == null) {
+            return column + " IS NULL";
+        }
+        params.add(value);
+        return column + " = ?";
+    }
+
+    private String orderByClause(QuerySpec spec, boolean reverse) {
+        StringBuilder sb = new StringBuilder(" ORDER BY ");
+        for (QuerySpec.SortKey sortKey : spec.getSortKeys()) {
+            sb.append(sortKey.getColumn()).append(sortKey.isAscending() != reverse ? " ASC, " : " DESC, ");
+        }
+        return sb.append(getKeyColumn()).append(reverse ? " DESC" : " ASC").toString();
+    }
+
+    private static void setParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    // Следующая страница читается заранее, пока пользователь просматривает текущие. Вызывается под монитором
+    private void prefetchNextPage() {
+        if (!hasMoreAfter || dataCache.isEmpty()) {
+            return;
+        }
+        T lastRow = dataCache.get(dataCache.size() - 1);
+        QuerySpec spec = query;
+        prefetchedAfter = lastRow;
+        prefetchedPage = CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetchPage(spec, lastRow, true);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, DataAccessExecutor.background());
+    }
+
+    // Ожидание заранее прочитанной страницы — без монитора модели
+    private List<T> join(CompletableFuture<List<T>> pending) {
+        if (pending == null) {
+            return null;
+        }
+        try {
+            return pending.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    // В страничном режиме строки за границами окна не добавляются: они будут прочитаны при прокрутке
+    private boolean isWithinWindow(T item, T first, T last) {
+        if (!isPaged()) {
+            return true;
+        }
+        if (first == null) {
+            return !hasMoreBefore && !hasMoreAfter;
+        }
+        return (!hasMoreBefore || order.compare(item, first) >= 0)
+                && (!hasMoreAfter || order.compare(item, last) <= 0);
+    }
+
+    // Строки по ключам в переданном порядке: из окна в памяти, недостающие — из базы.
+    // Отсутствующие ключи пропускаются.
+    public List<T> loadByKeys(List<Integer> keys) throws SQLException {
+        requireKey();
+        Map<Integer, T> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (int key : keys) {
+                T item = index.get(key);
+                if (item != null) {
+                    found.put(key, item);
+                } else {
+                    missing.add(key);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<T> fetched;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                fetched = fetchByKeys(conn, missing);
+            }
+            // Строки из окна уже собраны и заморожены — связи привязываются только к прочитанным сейчас
+            if (type == Order.class) {
+                ensureDictionariesLoaded();
+                @SuppressWarnings("unchecked")
+                List<Order> orders = (List<Order>) fetched;
+                loadOrderAssociations(orders);
+            }
+            for (T item : fetched) {
+                found.put(keyExtractor.applyAsInt(item), item);
+            }
+        }
+
+        List<T> result = new ArrayList<>(found.size());
+        for (int key : keys) {
+            T item = found.get(key);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    // Потоковый проход по всей таблице: строки читаются курсором и не накапливаются
+    // ни в модели, ни в кэшах (построение индексов, экспорт). Пока идёт проход,
+    // action не должен обращаться к базе через то же соединение.
+    public void forEachRow(Consumer<T> action) throws SQLException {
+        String sql = "SELECT * FROM " + getTableName()
+                + (keyExtractor != null ? " ORDER BY " + getKeyColumn() : "");
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(DatabaseConnection.getDialect().getStreamingFetchSize());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapRow(rs));
+                }
+            }
+        }
+    }
+
+    // Столбцы таблицы в порядке объявления и их значения в объекте
+    public List<String> getColumnNames() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    public Object getColumnValue(T item, String columnName) {
+        return column(columnName).apply(item);
+    }
+
+    List<T> fetchByKeys(Connection conn, List<Integer> keys) throws SQLException {
+        List<T> result = new ArrayList<>(keys.size());
+        String query = "SELECT * FROM " + getTableName() + " WHERE " + getKeyColumn() + " IN ";
+        for (int from = 0; from < keys.size(); from += ASSOCIATION_CHUNK_SIZE) {
+            List<Integer> chunk = keys.subList(from, Math.min(from + ASSOCIATION_CHUNK_SIZE, keys.size()));
+            try (PreparedStatement pstmt = conn.prepareStatement(query + inClause(chunk.size()))) {
+                setIntParameters(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(mapResultSetToObject(rs));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private ChangeLog.Cursor readChangeLogCursor() {
+        if (keyExtractor == null || !changeLogAvailable) {
+            return null;
+        }
+        // Без позиции следующее обновление модели — полная перезагрузка, которая прочитает позицию снова.
+        // Насовсем журнал отключается, только если его таблицы нет: сбой соединения или таймаут пула временные
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try {
+                return ChangeLog.Cursor.atEnd(conn);
+            } catch (SQLException e) {
+                if (!SchemaBootstrap.tablesExist(conn, ChangeLog.TABLE)) {
+                    changeLogAvailable = false;
+                    System.err.println("Changelog table missing, falling back to full reloads: " + e.getMessage());
+                    return null;
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Changelog position unavailable, next refresh reloads: " + e.getMessage());
+            return null;
+        }
+    }
+
+    String getTableName() {
         Map<String, String> mappings = Map.of(
                 "Book", "books",
                 "Customer", "customers",
@@ -189,39 +1067,86 @@ public class DataModel<T> {
         return tableName;
     }
 
-    private void refreshDiscountAndPenaltyCache() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM discounts")) {
+    private String getKeyColumn() {
+        Map<String, String> mappings = Map.of(
+                "Book", "isbn",
+                "Customer", "customer_id",
+                "Order", "order_id",
+                "User", "user_id"
+        );
 
-            while (rs.next()) {
-                Discount discount = new Discount(
-                        rs.getString("discount_name"),
-                        rs.getBigDecimal("discount_amount")
-                );
-                discountCache.put(discount.getDiscountName(), discount);
-            }
-        } catch (SQLException e) {
-            System.err.println("Discount refresh failed: " + e.getMessage());
+        String keyColumn = mappings.get(type.getSimpleName());
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("No key column for: " + type.getSimpleName());
+        }
+        return keyColumn;
+    }
+
+    // Без опроса журнала справочники перечитываются при каждом обновлении заказов, как и раньше
+    private static void ensureDictionariesLoaded() {
+        if (!dictionariesLoaded || !ChangeLogPoller.isRunning()) {
+            reloadDictionaries();
         }
+    }
 
+    // Справочники небольшие: читаются целиком, удалённые записи уходят из кэшей
+    static void reloadDictionaries() {
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM penalties")) {
+             Statement stmt = conn.createStatement()) {
+            Map<String, Discount> discounts = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM discounts")) {
+                while (rs.next()) {
+                    Discount discount = new Discount(
+                            rs.getString("discount_name"),
+                            rs.getBigDecimal("discount_amount")
+                    );
+                    discounts.put(discount.getDiscountName(), discount);
+                }
+            }
 
-            while (rs.next()) {
-                Penalty penalty = new Penalty(
-                        rs.getString("penalty_name"),
-                        rs.getBigDecimal("penalty_amount")
-                );
-                penaltyCache.put(penalty.getPenaltyName(), penalty);
+            Map<String, Penalty> penalties = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM penalties")) {
+                while (rs.next()) {
+                    Penalty penalty = new Penalty(
+                            rs.getString("penalty_name"),
+                            rs.getBigDecimal("penalty_amount")
+                    );
+                    penalties.put(penalty.getPenaltyName(), penalty);
+                }
             }
+
+            discountCache.replaceAll(discounts);
+            penaltyCache.replaceAll(penalties);
+            dictionariesLoaded = true;
         } catch (SQLException e) {
-            System.err.println("Penalty refresh failed: " + e.getMessage());
+            System.err.println("Discount/penalty refresh failed: " + e.getMessage());
+        }
+    }
+
+    // null — сбросить весь кэш книг
+    static void evictBooks(Collection<Integer> isbns) {
+        if (isbns == null) {
+            bookCache.clear();
+        } else {
+            bookCache.invalidateAll(isbns);
+        }
+    }
+
+    // Строка -> объект с запоминанием книг, скидок и штрафов в общих кэшах. Доступен бенчмаркам того же пакета
+    T mapResultSetToObject(ResultSet rs) throws SQLException {
+        T item = mapRow(rs);
+        if (item instanceof Book book) {
+            bookCache.put(book.getIsbn(), book);
+        } else if (item instanceof Discount discount) {
+            discountCache.put(discount.getDiscountName(), discount);
+        } else if (item instanceof Penalty penalty) {
+            penaltyCache.put(penalty.getPenaltyName(), penalty);
         }
+        return item;
     }
 
-    private T mapResultSetToObject(ResultSet rs) throws SQLException {
+    // Только преобразование, без кэшей: для потоковых проходов по всей таблице
+    private T mapRow(ResultSet rs) {
         String className = type.getSimpleName();
         Function<ResultSet, T> mapper = mappers.get(className);
         if (mapper != null) {
@@ -231,63 +1156,236 @@ public class DataModel<T> {
     }
 
     public static void loadOrderAssociations(Order order) {
+        loadOrderAssociations(Collections.singletonList(order), false);
+    }
 
-        String discountQuery = "SELECT d.* FROM orderdiscounts od " +
-                "JOIN discounts d ON od.discount_name = d.discount_name " +
-                "WHERE od.order_id = ?";
+    public static void loadOrderAssociations(Collection<Order> orders) {
+        loadOrderAssociations(orders, false);
+    }
 
-        String penaltyQuery = "SELECT p.* FROM orderpenalties op " +
-                "JOIN penalties p ON op.penalty_name = p.penalty_name " +
-                "WHERE op.order_id = ?";
+    // wholeTable = true: заказы покрывают всю таблицу, поэтому связи читаются без фильтра,
+    // иначе — порциями по ASSOCIATION_CHUNK_SIZE идентификаторов через IN (...)
+    private static void loadOrderAssociations(Collection<Order> orders, boolean wholeTable) {
+        if (orders.isEmpty()) {
+            return;
+        }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(discountQuery)) {
+        Map<Integer, Order> ordersById = new HashMap<>(orders.size() * 2);
+        for (Order order : orders) {
+            ordersById.put(order.getOrderId(), order);
+        }
 
-            pstmt.setInt(1, order.getOrderId());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Discount discount = new Discount(
-                            rs.getString("discount_name"),
-                            rs.getBigDecimal("discount_amount")
-                    );
-                    Discount cached = discountCache.get(discount.getDiscountName());
-                    if (cached != null) discount = cached;
+        String discountQuery = "SELECT od.order_id, d.discount_name, d.discount_amount FROM orderdiscounts od " +
+                "JOIN discounts d ON od.discount_name = d.discount_name";
+
+        String penaltyQuery = "SELECT op.order_id, p.penalty_name, p.penalty_amount FROM orderpenalties op " +
+                "JOIN penalties p ON op.penalty_name = p.penalty_name";
+
+        Map<Integer, Book> books = Collections.emptyMap();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (wholeTable) {
+                try (Statement stmt = conn.createStatement()) {
+                    try (ResultSet rs = stmt.executeQuery(discountQuery)) {
+                        attachDiscounts(rs, ordersById);
+                    }
+                    try (ResultSet rs = stmt.executeQuery(penaltyQuery)) {
+                        attachPenalties(rs, ordersById);
+                    }
+                }
+            } else {
+                List<Integer> ids = new ArrayList<>(ordersById.keySet());
+                for (int from = 0; from < ids.size(); from += ASSOCIATION_CHUNK_SIZE) {
+                    List<Integer> chunk = ids.subList(from, Math.min(from + ASSOCIATION_CHUNK_SIZE, ids.size()));
+                    String in = inClause(chunk.size());
 
-                    order.addDiscount(discount);
+                    try (PreparedStatement pstmt = conn.prepareStatement(discountQuery + " WHERE od.order_id IN " + in)) {
+                        setIntParameters(pstmt, chunk);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            attachDiscounts(rs, ordersById);
+                        }
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(penaltyQuery + " WHERE op.order_id IN " + in)) {
+                        setIntParameters(pstmt, chunk);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            attachPenalties(rs, ordersById);
+                        }
+                    }
                 }
             }
+
+            List<Integer> isbns = new ArrayList<>(orders.size());
+            for (Order order : orders) {
+                isbns.add(order.getIsbn());
+            }
+            books = resolveBooks(conn, isbns);
         } catch (SQLException e) {
-            System.err.println("Discount load failed: " + e.getMessage());
+            System.err.println("Order associations load failed: " + e.getMessage());
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(penaltyQuery)) {
+        // Связи привязаны без пересчёта — каждый заказ замораживается и рассчитывается один раз
+        for (Order order : orders) {
+            Book book = books.get(order.getIsbn());
+            if (book != null) {
+                order.attachBook(book);
+            }
+            order.freeze();
+        }
+    }
+
+    private static void attachDiscounts(ResultSet rs, Map<Integer, Order> ordersById) throws SQLException {
+        while (rs.next()) {
+            Order order = ordersById.get(rs.getInt("order_id"));
+            if (order == null) continue;
+
+            String name = rs.getString("discount_name");
+            Discount discount = discountCache.get(name);
+            if (discount == null) {
+                discount = new Discount(name, rs.getBigDecimal("discount_amount"));
+                discountCache.put(name, discount);
+            }
+            order.attachDiscount(discount);
+        }
+    }
 
-            pstmt.setInt(1, order.getOrderId());
+    private static void attachPenalties(ResultSet rs, Map<Integer, Order> ordersById) throws SQLException {
+        while (rs.next()) {
+            Order order = ordersById.get(rs.getInt("order_id"));
+            if (order == null) continue;
+
+            String name = rs.getString("penalty_name");
+            Penalty penalty = penaltyCache.get(name);
+            if (penalty == null) {
+                penalty = new Penalty(name, rs.getBigDecimal("penalty_amount"));
+                penaltyCache.put(name, penalty);
+            }
+            order.attachPenalty(penalty);
+        }
+    }
+
+    // Книга для заказа, собранного без чтения из базы; при промахе кэша читается на переданном соединении
+    public static Book findBook(Connection conn, int isbn) throws SQLException {
+        Book book = bookCache.get(isbn);
+        if (book != null) {
+            return book;
+        }
+        return resolveBooks(conn, Collections.singletonList(isbn)).get(isbn);
+    }
+
+    // Заказ со связями, прочитанный на соединении транзакции; forUpdate блокирует строку заказа
+    // до конца транзакции, чтобы параллельные правки одного заказа выполнялись по очереди
+    public static Order loadOrder(Connection conn, int orderId, boolean forUpdate) throws SQLException {
+        Order.Builder builder;
+        int isbn;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT * FROM orders WHERE order_id = ?" + (forUpdate ? " FOR UPDATE" : ""))) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                isbn = rs.getInt("isbn");
+                builder = Order.builder(orderId, rs.getInt("customer_id"), isbn,
+                        rs.getDate("issue_date"), rs.getDate("return_date"));
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT d.discount_name, d.discount_amount FROM orderdiscounts od " +
+                        "JOIN discounts d ON od.discount_name = d.discount_name WHERE od.order_id = ?")) {
+            pstmt.setInt(1, orderId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Penalty penalty = new Penalty(
-                            rs.getString("penalty_name"),
-                            rs.getBigDecimal("penalty_amount")
-                    );
-                    Penalty cached = penaltyCache.get(penalty.getPenaltyName());
-                    if (cached != null) penalty = cached;
+                    builder.discount(new Discount(rs.getString("discount_name"), rs.getBigDecimal("discount_amount")));
+                }
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT p.penalty_name, p.penalty_amount FROM orderpenalties op " +
+                        "JOIN penalties p ON op.penalty_name = p.penalty_name WHERE op.order_id = ?")) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    builder.penalty(new Penalty(rs.getString("penalty_name"), rs.getBigDecimal("penalty_amount")));
+                }
+            }
+        }
+        return builder.book(findBook(conn, isbn)).build();
+    }
+
+    // Книги по ISBN: из кэша, а недостающие — одним запросом на порцию. Результат возвращается
+    // отдельной картой: при большом числе книг кэш может вытеснить часть из них до привязки к заказам
+    private static Map<Integer, Book> resolveBooks(Connection conn, Collection<Integer> isbnList) throws SQLException {
+        Map<Integer, Book> books = new HashMap<>();
+        Set<Integer> missing = new HashSet<>();
+        for (int isbn : isbnList) {
+            if (books.containsKey(isbn) || missing.contains(isbn)) {
+                continue;
+            }
+            Book book = bookCache.get(isbn);
+            if (book != null) {
+                books.put(isbn, book);
+            } else {
+                missing.add(isbn);
+            }
+        }
+        if (missing.isEmpty()) {
+            return books;
+        }
 
-                    order.addPenalty(penalty);
+        List<Integer> isbns = new ArrayList<>(missing);
+        for (int from = 0; from < isbns.size(); from += ASSOCIATION_CHUNK_SIZE) {
+            List<Integer> chunk = isbns.subList(from, Math.min(from + ASSOCIATION_CHUNK_SIZE, isbns.size()));
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT * FROM books WHERE isbn IN " + inClause(chunk.size()))) {
+                setIntParameters(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Book book = new Book(
+                                rs.getInt("isbn"),
+                                rs.getString("title"),
+                                rs.getString("author"),
+                                rs.getString("genre"),
+                                rs.getBigDecimal("deposit_cost"),
+                                rs.getBigDecimal("rental_cost_per_day")
+                        );
+                        bookCache.put(book.getIsbn(), book);
+                        books.put(book.getIsbn(), book);
+                    }
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Penalty load failed: " + e.getMessage());
         }
-        Book book = bookCache.get(order.getIsbn());
-        if (book != null) {
-            order.setBook(book);
+        return books;
+    }
+
+    // Число параметров IN округляется вверх до степени двойки (не больше размера порции), чтобы
+    // запросы с разной длиной списка сводились к нескольким текстам SQL и попадали в кэш запросов пула
+    private static int paddedSize(int size) {
+        return size <= 1 ? 1 : Math.min(Integer.highestOneBit(size - 1) << 1, ASSOCIATION_CHUNK_SIZE);
+    }
+
+    private static String inClause(int size) {
+        int padded = paddedSize(size);
+        StringBuilder sb = new StringBuilder(padded * 2 + 2).append('(');
+        for (int i = 0; i < padded; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.append(')').toString();
+    }
+
+    // Лишние параметры повторяют последнее значение — на результат IN это не влияет
+    private static void setIntParameters(PreparedStatement pstmt, List<Integer> values) throws SQLException {
+        int padded = paddedSize(values.size());
+        for (int i = 0; i < padded; i++) {
+            pstmt.setInt(i + 1, values.get(Math.min(i, values.size() - 1)));
         }
-        order.calculateTotal();
     }
 
     public void refreshImmediately() throws SQLException {
-        refreshCache();
+        loadLock.lock();
+        try {
+            refreshCache();
+        } finally {
+            loadLock.unlock();
+        }
     }
 
     // Статические методы доступа к кэшам
@@ -311,11 +1409,28 @@ public class DataModel<T> {
         penaltyCache.put(penalty.getPenaltyName(), penalty);
     }
 
+    // Удалённая книга сразу уходит из общего кэша
+    public static void invalidateBook(int isbn) {
+        bookCache.invalidate(isbn);
+    }
+
+    // Снимки справочников
     public static Map<String, Discount> getDiscountCache() {
-        return Collections.unmodifiableMap(discountCache);
+        return Collections.unmodifiableMap(discountCache.snapshot());
     }
 
     public static Map<String, Penalty> getPenaltyCache() {
-        return Collections.unmodifiableMap(penaltyCache);
+        return Collections.unmodifiableMap(penaltyCache.snapshot());
+    }
+
+    public static String getCacheStats() {
+        return bookCache.getStats() + "; " + discountCache.getStats() + "; " + penaltyCache.getStats();
+    }
+
+    private static <K, V> BoundedCache<K, V> createCache(String name, int defaultCapacity, long defaultTtlMinutes) {
+        return new BoundedCache<>(name,
+                DatabaseConfig.getCacheCapacity(name, defaultCapacity),
+                DatabaseConfig.getCacheTtlMinutes(name, defaultTtlMinutes),
+                TimeUnit.MINUTES);
     }
 }
\ No newline at end of file
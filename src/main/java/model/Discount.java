@@ -5,10 +5,12 @@ import java.math.BigDecimal;
 public class Discount {
     private String discountName;
     private BigDecimal discountAmount; // Абсолютное значение
+    private final long discountAmountMinor;
 
     public Discount(String discountName, BigDecimal discountAmount) {
         this.discountName = discountName;
         this.discountAmount = discountAmount;
+        this.discountAmountMinor = Money.toMinor(discountAmount);
     }
 
 
@@ -16,6 +18,9 @@ public class Discount {
 
     public BigDecimal getDiscountAmount() { return discountAmount; }
 
+    // Сумма в копейках для расчёта итогов заказа
+    public long getDiscountAmountMinor() { return discountAmountMinor; }
+
 
     @Override
     public String toString() {
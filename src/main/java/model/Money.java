@@ -0,0 +1,24 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Денежные суммы в копейках. Столбцы сумм в базе — DECIMAL(10,2), поэтому две цифры дробной части
+// представляют любое хранимое значение точно; лишние знаки округляются так же, как при записи в базу.
+public final class Money {
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
@@ -1,42 +1,74 @@
 package model;
 
-import javafx.beans.property.*;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+// Заказ хранится компактно: ключи — int, даты — номер дня от эпохи, суммы — копейки в long,
+// скидки и штрафы — массивы ссылок на общие объекты справочников. Свойства JavaFX создаются
+// только для строк, которые таблица действительно показывает.
+// Заказ собирается (книга, скидки, штрафы) через Builder или пакетную загрузку и рассчитывается
+// один раз при заморозке; после неё связи меняются только через addDiscount/addPenalty с пересчётом.
 public class Order {
-    private final IntegerProperty orderId = new SimpleIntegerProperty();
-    private final IntegerProperty customerId = new SimpleIntegerProperty();
-    private final ObjectProperty<Book> book = new SimpleObjectProperty<>();
-    private final ObjectProperty<Date> issueDate = new SimpleObjectProperty<>();
-    private final ObjectProperty<Date> returnDate = new SimpleObjectProperty<>();
-    private final ObjectProperty<BigDecimal> rentalCost = new SimpleObjectProperty<>();
-    private final ObjectProperty<BigDecimal> totalAmount = new SimpleObjectProperty<>();
-    private final List<Discount> discounts = new ArrayList<>();
-    private final List<Penalty> penalties = new ArrayList<>();
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final Discount[] NO_DISCOUNTS = new Discount[0];
+    private static final Penalty[] NO_PENALTIES = new Penalty[0];
+
+    private final int orderId;
+    private final int customerId;
     private final int isbn;
+    private final int issueDay;
+    private final int returnDay;
+    private Book book;
+    private long rentalCost;
+    private long totalAmount;
+    private Discount[] discounts = NO_DISCOUNTS;
+    private Penalty[] penalties = NO_PENALTIES;
+    private boolean frozen;
+    private volatile Properties properties;
 
     public Order(int orderId, int customerId, int isbn, Date issueDate, Date returnDate) {
-        this.orderId.set(orderId);
-        this.customerId.set(customerId);
+        this.orderId = orderId;
+        this.customerId = customerId;
         this.isbn = isbn;
-        this.issueDate.set(issueDate);
-        this.returnDate.set(returnDate);
-        this.rentalCost.addListener((obs, oldVal, newVal) -> calculateTotal());
+        this.issueDay = toEpochDay(issueDate);
+        this.returnDay = toEpochDay(returnDate);
     }
 
-    public int getOrderId() { return orderId.get(); }
+    public static Builder builder(int orderId, int customerId, int isbn, Date issueDate, Date returnDate) {
+        return new Builder(new Order(orderId, customerId, isbn, issueDate, returnDate));
+    }
 
+    // Копия заказа с теми же книгой, скидками и штрафами, к которой можно добавить новые связи
+    public Builder toBuilder() {
+        Builder builder = new Builder(new Order(orderId, customerId, isbn, issueDay, returnDay));
+        builder.order.book = book;
+        builder.order.discounts = discounts;
+        builder.order.penalties = penalties;
+        return builder;
+    }
 
-    public int getCustomerId() { return customerId.get(); }
+    private Order(int orderId, int customerId, int isbn, int issueDay, int returnDay) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.isbn = isbn;
+        this.issueDay = issueDay;
+        this.returnDay = returnDay;
+    }
 
+    public int getOrderId() { return orderId; }
 
-    public Book getBook() { return book.get(); }
+
+    public int getCustomerId() { return customerId; }
+
+
+    public Book getBook() { return book; }
     public void setBook(Book book) {
-        this.book.set(book);
+        this.book = book;
         calculateRentalCost();
     }
 
@@ -45,85 +77,230 @@ public class Order {
         return isbn;
     }
 
-    public Date getIssueDate() { return issueDate.get(); }
+    public Date getIssueDate() { return toDate(issueDay); }
+
+    public ReadOnlyObjectProperty<Date> issueDateProperty() { return properties().issueDate.getReadOnlyProperty(); }
 
-    public ObjectProperty<Date> issueDateProperty() { return issueDate; }
+    public Date getReturnDate() { return toDate(returnDay); }
 
-    public Date getReturnDate() { return returnDate.get(); }
+    public ReadOnlyObjectProperty<Date> returnDateProperty() { return properties().returnDate.getReadOnlyProperty(); }
 
-    public ObjectProperty<Date> returnDateProperty() { return returnDate; }
+    // Даты как номер дня от эпохи, без создания объектов Date
+    public int getIssueEpochDay() { return issueDay; }
 
-    public BigDecimal getRentalCost() { return rentalCost.get(); }
+    public int getReturnEpochDay() { return returnDay; }
 
-    public ObjectProperty<BigDecimal> rentalCostProperty() { return rentalCost; }
+    public BigDecimal getRentalCost() { return Money.toDecimal(rentalCost); }
 
-    public BigDecimal getTotalAmount() { return totalAmount.get(); }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount.set(totalAmount); }
-    public ObjectProperty<BigDecimal> totalAmountProperty() { return totalAmount; }
+    public ReadOnlyObjectProperty<BigDecimal> rentalCostProperty() { return properties().rentalCost.getReadOnlyProperty(); }
+
+    public BigDecimal getTotalAmount() { return Money.toDecimal(totalAmount); }
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = Money.toMinor(totalAmount);
+        publish();
+    }
+    public ReadOnlyObjectProperty<BigDecimal> totalAmountProperty() { return properties().totalAmount.getReadOnlyProperty(); }
+
+    // Суммы в копейках
+    public long getRentalCostMinor() { return rentalCost; }
+
+    public long getTotalAmountMinor() { return totalAmount; }
 
     public void addDiscount(Discount discount) {
-        this.discounts.add(discount);
+        appendDiscount(discount);
         calculateTotal();
     }
 
 
     public void addPenalty(Penalty penalty) {
-        this.penalties.add(penalty);
+        appendPenalty(penalty);
         calculateTotal();
     }
 
+    // Без пересчёта: при пакетной загрузке заказ рассчитывается один раз в freeze()
+    void attachDiscount(Discount discount) {
+        checkNotFrozen();
+        appendDiscount(discount);
+    }
+
+    void attachPenalty(Penalty penalty) {
+        checkNotFrozen();
+        appendPenalty(penalty);
+    }
+
+    private void appendDiscount(Discount discount) {
+        discounts = Arrays.copyOf(discounts, discounts.length + 1);
+        discounts[discounts.length - 1] = discount;
+    }
+
+    private void appendPenalty(Penalty penalty) {
+        penalties = Arrays.copyOf(penalties, penalties.length + 1);
+        penalties[penalties.length - 1] = penalty;
+    }
+
+    void attachBook(Book book) {
+        checkNotFrozen();
+        this.book = book;
+    }
+
+    // Завершает сборку: единственный расчёт стоимости собранного заказа
+    void freeze() {
+        checkNotFrozen();
+        frozen = true;
+        calculateRentalCost();
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Order " + orderId + " is already assembled");
+        }
+    }
+
+    public List<Discount> getDiscounts() {
+        return Collections.unmodifiableList(Arrays.asList(discounts));
+    }
+
+    public List<Penalty> getPenalties() {
+        return Collections.unmodifiableList(Arrays.asList(penalties));
+    }
+
     public String getDiscountsString() {
-        if (discounts.isEmpty()) return "None";
-        return discounts.stream()
+        if (discounts.length == 0) return "None";
+        return Arrays.stream(discounts)
                 .map(d -> d.getDiscountName() + " (-" + d.getDiscountAmount() + ")")
                 .collect(Collectors.joining(", "));
     }
 
     public String getPenaltiesString() {
-        if (penalties.isEmpty()) return "None";
-        return penalties.stream()
+        if (penalties.length == 0) return "None";
+        return Arrays.stream(penalties)
                 .map(p -> p.getPenaltyName() + " (+" + p.getPenaltyAmount() + ")")
                 .collect(Collectors.joining(", "));
     }
 
     public BigDecimal getDepositAmount() {
-        return (book.get() != null) ?
-                book.get().getDepositCost() :
+        return (book != null) ?
+                book.getDepositCost() :
                 BigDecimal.ZERO;
     }
 
+    // Дни аренды считаются по календарным датам, не меньше одного
     public void calculateRentalCost() {
-        if (getIssueDate() == null || getReturnDate() == null) {
-            rentalCost.set(BigDecimal.ZERO);
-            return;
-        }
-
-        long diff = getReturnDate().getTime() - getIssueDate().getTime();
-        long days = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-        days = Math.max(days, 1);
-
-        if (book.get() != null) {
-            BigDecimal cost = book.get().getRentalCostPerDay().multiply(BigDecimal.valueOf(days));
-            rentalCost.set(cost);
+        if (issueDay == NO_DATE || returnDay == NO_DATE || book == null) {
+            rentalCost = 0;
         } else {
-            rentalCost.set(BigDecimal.ZERO);
+            rentalCost = PricingEngine.rentalCost(book.getRentalCostPerDayMinor(), issueDay, returnDay);
         }
         calculateTotal();
     }
 
     public void calculateTotal() {
-        BigDecimal rental = getRentalCost() != null ? getRentalCost() : BigDecimal.ZERO;
-        BigDecimal total = rental;
+        totalAmount = PricingEngine.total(rentalCost, discounts, discounts.length, penalties, penalties.length);
+        publish();
+    }
+
+    // Свойства создаются при первом обращении таблицы к строке
+    private Properties properties() {
+        Properties current = properties;
+        if (current == null) {
+            synchronized (this) {
+                current = properties;
+                if (current == null) {
+                    current = new Properties(this);
+                    properties = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void publish() {
+        Properties current = properties;
+        if (current != null) {
+            current.rentalCost.set(getRentalCost());
+            current.totalAmount.set(getTotalAmount());
+        }
+    }
+
+    private static int toEpochDay(Date date) {
+        return date != null ? Math.toIntExact(date.toLocalDate().toEpochDay()) : NO_DATE;
+    }
+
+    private static Date toDate(int epochDay) {
+        return epochDay != NO_DATE ? Date.valueOf(LocalDate.ofEpochDay(epochDay)) : null;
+    }
 
-        for (Discount discount : discounts) {
-            total = total.subtract(discount.getDiscountAmount());
+    // Собирает заказ без промежуточных пересчётов; build() рассчитывает его один раз
+    public static final class Builder {
+        private final Order order;
+        private final List<Discount> discounts = new ArrayList<>();
+        private final List<Penalty> penalties = new ArrayList<>();
+
+        private Builder(Order order) {
+            this.order = order;
+        }
+
+        public Builder book(Book book) {
+            order.book = book;
+            return this;
+        }
+
+        public Builder discount(Discount discount) {
+            discounts.add(discount);
+            return this;
+        }
+
+        public Builder discounts(Collection<Discount> discounts) {
+            this.discounts.addAll(discounts);
+            return this;
+        }
+
+        public Builder penalty(Penalty penalty) {
+            penalties.add(penalty);
+            return this;
+        }
+
+        public Builder penalties(Collection<Penalty> penalties) {
+            this.penalties.addAll(penalties);
+            return this;
+        }
+
+        public Order build() {
+            if (!discounts.isEmpty()) {
+                order.discounts = concat(order.discounts, discounts.toArray(NO_DISCOUNTS));
+            }
+            if (!penalties.isEmpty()) {
+                order.penalties = concat(order.penalties, penalties.toArray(NO_PENALTIES));
+            }
+            order.freeze();
+            return order;
         }
 
-        for (Penalty penalty : penalties) {
-            total = total.add(penalty.getPenaltyAmount());
+        private static <T> T[] concat(T[] head, T[] tail) {
+            if (head.length == 0) {
+                return tail;
+            }
+            T[] result = Arrays.copyOf(head, head.length + tail.length);
+            System.arraycopy(tail, 0, result, head.length, tail.length);
+            return result;
         }
+    }
 
-        total = total.max(BigDecimal.ZERO);
-        setTotalAmount(total);
+    private static final class Properties {
+        private final ReadOnlyObjectWrapper<Date> issueDate;
+        private final ReadOnlyObjectWrapper<Date> returnDate;
+        private final ReadOnlyObjectWrapper<BigDecimal> rentalCost;
+        private final ReadOnlyObjectWrapper<BigDecimal> totalAmount;
+
+        Properties(Order order) {
+            issueDate = new ReadOnlyObjectWrapper<>(order, "issueDate", order.getIssueDate());
+            returnDate = new ReadOnlyObjectWrapper<>(order, "returnDate", order.getReturnDate());
+            rentalCost = new ReadOnlyObjectWrapper<>(order, "rentalCost", order.getRentalCost());
+            totalAmount = new ReadOnlyObjectWrapper<>(order, "totalAmount", order.getTotalAmount());
+        }
     }
-}
\ No newline at end of file
+}
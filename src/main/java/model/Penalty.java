@@ -5,10 +5,12 @@ import java.math.BigDecimal;
 public class Penalty {
     private String penaltyName;
     private BigDecimal penaltyAmount; // Абсолютное значение
+    private final long penaltyAmountMinor;
 
     public Penalty(String penaltyName, BigDecimal penaltyAmount) {
         this.penaltyName = penaltyName;
         this.penaltyAmount = penaltyAmount;
+        this.penaltyAmountMinor = Money.toMinor(penaltyAmount);
     }
 
     // Геттеры и сеттеры
@@ -17,6 +19,9 @@ public class Penalty {
 
     public BigDecimal getPenaltyAmount() { return penaltyAmount; }
 
+    // Сумма в копейках для расчёта итогов заказа
+    public long getPenaltyAmountMinor() { return penaltyAmountMinor; }
+
 
     @Override
     public String toString() {
@@ -0,0 +1,46 @@
+package model;
+
+import java.util.Collection;
+
+// Расчёт стоимости заказа в копейках: без BigDecimal и без выделения памяти.
+// Результат совпадает с прежним расчётом на BigDecimal: аренда = цена за день × дни (не меньше одного),
+// итог = аренда − скидки + штрафы, но не меньше нуля. Переполнение long — исключение, а не тихая ошибка.
+public final class PricingEngine {
+    private PricingEngine() {
+    }
+
+    public static long rentalCost(long costPerDayMinor, int issueDay, int returnDay) {
+        long days = Math.max(returnDay - (long) issueDay, 1);
+        return Math.multiplyExact(costPerDayMinor, days);
+    }
+
+    public static long total(long rentalMinor, Discount[] discounts, int discountCount,
+                             Penalty[] penalties, int penaltyCount) {
+        long total = rentalMinor;
+        for (int i = 0; i < discountCount; i++) {
+            total = Math.subtractExact(total, discounts[i].getDiscountAmountMinor());
+        }
+        for (int i = 0; i < penaltyCount; i++) {
+            total = Math.addExact(total, penalties[i].getPenaltyAmountMinor());
+        }
+        return Math.max(total, 0);
+    }
+
+    // Итог по уже просуммированным скидкам и штрафам (пересборка сводки по агрегатам SQL)
+    public static long total(long rentalMinor, long discountsMinor, long penaltiesMinor) {
+        return Math.max(Math.addExact(Math.subtractExact(rentalMinor, discountsMinor), penaltiesMinor), 0);
+    }
+
+    // Пересчёт набора заказов одним проходом, например после пакетной загрузки скидок и штрафов
+    public static void reprice(Order[] orders) {
+        for (Order order : orders) {
+            order.calculateRentalCost();
+        }
+    }
+
+    public static void reprice(Collection<Order> orders) {
+        for (Order order : orders) {
+            order.calculateRentalCost();
+        }
+    }
+}
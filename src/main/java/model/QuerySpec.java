@@ -0,0 +1,171 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Фильтры и порядок сортировки, которые DataModel переводит в WHERE / ORDER BY.
+// Объект неизменяемый: where/orderBy возвращают новую спецификацию.
+public final class QuerySpec {
+    public enum Operator {
+        EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">="), LIKE("LIKE");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() { return sql; }
+    }
+
+    public static final class Filter {
+        private final String column;
+        private final Operator operator;
+        private final Object value;
+
+        Filter(String column, Operator operator, Object value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public String getColumn() { return column; }
+
+        public Operator getOperator() { return operator; }
+
+        public Object getValue() { return value; }
+
+        // Значение параметра для PreparedStatement; LIKE ищет подстроку буквально: \, % и _ экранируются
+        // символом из SqlDialect.likeEscape()
+        Object getSqlValue() {
+            return operator == Operator.LIKE ? "%" + escapeLike(String.valueOf(value)) + "%" : value;
+        }
+
+        private static String escapeLike(String text) {
+            StringBuilder sb = new StringBuilder(text.length() + 8);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\\' || c == '%' || c == '_') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+    }
+
+    public static final class SortKey {
+        private final String column;
+        private final boolean ascending;
+
+        SortKey(String column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        public String getColumn() { return column; }
+
+        public boolean isAscending() { return ascending; }
+    }
+
+    private static final QuerySpec ALL = new QuerySpec(Collections.emptyList(), Collections.emptyList());
+
+    private final List<Filter> filters;
+    private final List<SortKey> sortKeys;
+
+    private QuerySpec(List<Filter> filters, List<SortKey> sortKeys) {
+        this.filters = filters;
+        this.sortKeys = sortKeys;
+    }
+
+    public static QuerySpec all() {
+        return ALL;
+    }
+
+    public QuerySpec where(String column, Operator operator, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Filter value is null for column " + column);
+        }
+        List<Filter> newFilters = new ArrayList<>(filters);
+        newFilters.add(new Filter(column, operator, value));
+        return new QuerySpec(Collections.unmodifiableList(newFilters), sortKeys);
+    }
+
+    public QuerySpec orderBy(String column, boolean ascending) {
+        List<SortKey> newSortKeys = new ArrayList<>(sortKeys);
+        newSortKeys.add(new SortKey(column, ascending));
+        return new QuerySpec(filters, Collections.unmodifiableList(newSortKeys));
+    }
+
+    // Те же фильтры без сортировки — основа для новой сортировки из таблицы
+    public QuerySpec withoutSort() {
+        return new QuerySpec(filters, Collections.emptyList());
+    }
+
+    // Та же сортировка без фильтров — основа для новых фильтров из панели фильтрации
+    public QuerySpec withoutFilters() {
+        return new QuerySpec(Collections.emptyList(), sortKeys);
+    }
+
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    public List<SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    public boolean hasFilters() {
+        return !filters.isEmpty();
+    }
+
+    // Та же проверка в памяти — для строк, пришедших инкрементальным обновлением
+    <T> boolean matches(T item, Function<String, Function<T, Object>> columns) {
+        for (Filter filter : filters) {
+            Object actual = columns.apply(filter.column).apply(item);
+            if (actual == null) {
+                return false;
+            }
+            if (filter.operator == Operator.LIKE) {
+                String needle = String.valueOf(filter.value).toLowerCase(Locale.ROOT);
+                if (!String.valueOf(actual).toLowerCase(Locale.ROOT).contains(needle)) {
+                    return false;
+                }
+                continue;
+            }
+
+            int cmp = compareValues(actual, filter.value);
+            boolean ok = switch (filter.operator) {
+                case EQ -> cmp == 0;
+                case NE -> cmp != 0;
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+                default -> true;
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // NULL меньше любого значения — как в ORDER BY у MySQL и H2
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareValues(Object a, Object b) {
+        if (a == b) return 0;
+        if (a == null) return -1;
+        if (b == null) return 1;
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).compareToIgnoreCase((String) b);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+}
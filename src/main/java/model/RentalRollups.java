@@ -0,0 +1,469 @@
+package model;
+
+import util.DatabaseConnection;
+import util.SchemaBootstrap;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Сводные таблицы rental_stats (по дню выдачи, жанру, клиенту и общий итог), rental_due (по дате возврата)
+// и rental_overdue (накопленная просрочка). Обновляются приращениями в тех же транзакциях, что меняют заказы,
+// поэтому отчёт читает несколько готовых строк вместо всех заказов. Сводка отражает текущее содержимое orders;
+// rebuild пересобирает её целиком для сверки. Таблицы создаёт SchemaBootstrap.ensureExtensions при подключении;
+// если их нет, заказы пишутся без сводки, а отчёты недоступны.
+public final class RentalRollups {
+    public enum Dimension { DAY, GENRE, CUSTOMER, TOTAL }
+
+    public static final String ROLLUP_TABLE = "rental_stats";
+    private static final String DUE_TABLE = "rental_due";
+    private static final String OVERDUE_TABLE = "rental_overdue";
+    private static final int OVERDUE_ROW = 1;
+    private static final String TOTAL_KEY = "";
+    private static final String[] STAT_KEYS = {"dimension", "dim_key"};
+    private static final String[] STAT_COUNTERS = {"order_count", "revenue", "deposits"};
+    private static final String[] DUE_KEYS = {"return_date"};
+    private static final String[] DUE_COUNTERS = {"order_count", "deposits"};
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
+    // Таблицы сводки есть в базе; null — ещё не проверялось
+    private static volatile Boolean available;
+
+    private RentalRollups() {
+    }
+
+    public static boolean isAvailable(Connection conn) throws SQLException {
+        Boolean current = available;
+        if (current == null) {
+            current = SchemaBootstrap.tablesExist(conn, ROLLUP_TABLE, DUE_TABLE, OVERDUE_TABLE);
+            available = current;
+        }
+        return current;
+    }
+
+    // Вклад заказа целиком: sign = 1 при создании, -1 при удалении
+    public static void apply(Connection conn, Order order, int sign) throws SQLException {
+        Delta delta = new Delta();
+        delta.add(order, sign);
+        delta.write(conn);
+    }
+
+    // Пакет новых заказов: приращения суммируются в памяти и пишутся по одной строке на ключ
+    public static void applyAll(Connection conn, Collection<Order> orders) throws SQLException {
+        Delta delta = new Delta();
+        for (Order order : orders) {
+            delta.add(order, 1);
+        }
+        delta.write(conn);
+    }
+
+    // Изменилась только сумма заказа (скидка или штраф): число заказов и залоги прежние
+    public static void reprice(Connection conn, Order before, Order after) throws SQLException {
+        repriceAll(conn, List.of(before), List.of(after));
+    }
+
+    // Пары «до/после» в одинаковом порядке; разницы суммируются и пишутся одним пакетом
+    public static void repriceAll(Connection conn, List<Order> before, List<Order> after) throws SQLException {
+        Delta delta = new Delta();
+        for (int i = 0; i < after.size(); i++) {
+            delta.addRevenue(after.get(i), after.get(i).getTotalAmountMinor() - before.get(i).getTotalAmountMinor());
+        }
+        delta.write(conn);
+    }
+
+    // Сумма скидки или штрафа в справочнике изменилась с previous на current — сдвигаются итоги заказов с ней.
+    // Их связи и строки читаются с блокировкой, поэтому параллельные правки тех же заказов ждут конца транзакции;
+    // в сводку пишется только разница итогов. Вызывается после обновления справочника и до новых связей с ним
+    public static void repriceDiscount(Connection conn, String name, BigDecimal previous, BigDecimal current) throws SQLException {
+        repriceLinked(conn, "orderdiscounts", "discount_name", name, Money.toMinor(current) - Money.toMinor(previous), true);
+    }
+
+    public static void repricePenalty(Connection conn, String name, BigDecimal previous, BigDecimal current) throws SQLException {
+        repriceLinked(conn, "orderpenalties", "penalty_name", name, Money.toMinor(current) - Money.toMinor(previous), false);
+    }
+
+    private static void repriceLinked(Connection conn, String linkTable, String nameColumn, String name,
+                                      long change, boolean discount) throws SQLException {
+        if (change == 0 || !isAvailable(conn)) {
+            return;
+        }
+        Map<Integer, Integer> links = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT order_id FROM " + linkTable + " WHERE " + nameColumn + " = ? FOR UPDATE")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    links.merge(rs.getInt(1), 1, Integer::sum);
+                }
+            }
+        }
+        List<Integer> ids = new ArrayList<>(links.keySet());
+        Collections.sort(ids);
+
+        Delta delta = new Delta();
+        for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+            String in = " IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            // {скидки, штрафы} заказа по текущим суммам справочника, в копейках
+            Map<Integer, long[]> adjustments = new HashMap<>();
+            sumAmounts(conn, "SELECT od.order_id, d.discount_amount FROM orderdiscounts od " +
+                    "JOIN discounts d ON d.discount_name = od.discount_name WHERE od.order_id" + in + " FOR UPDATE",
+                    chunk, adjustments, 0);
+            sumAmounts(conn, "SELECT op.order_id, p.penalty_amount FROM orderpenalties op " +
+                    "JOIN penalties p ON p.penalty_name = op.penalty_name WHERE op.order_id" + in + " FOR UPDATE",
+                    chunk, adjustments, 1);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT o.order_id, o.customer_id, o.issue_date, o.return_date, b.genre, b.rental_cost_per_day " +
+                            "FROM orders o JOIN books b ON b.isbn = o.isbn WHERE o.order_id" + in + " FOR UPDATE")) {
+                setIds(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int orderId = rs.getInt("order_id");
+                        LocalDate issue = toLocalDate(rs.getDate("issue_date"));
+                        long rental = rentalCost(issue, toLocalDate(rs.getDate("return_date")),
+                                rs.getBigDecimal("rental_cost_per_day"));
+                        long[] sums = adjustments.getOrDefault(orderId, new long[2]);
+                        long shift = Math.multiplyExact(change, links.get(orderId));
+                        long after = PricingEngine.total(rental, sums[0], sums[1]);
+                        long before = discount
+                                ? PricingEngine.total(rental, sums[0] - shift, sums[1])
+                                : PricingEngine.total(rental, sums[0], sums[1] - shift);
+                        delta.add(issue, null, rs.getString("genre"), rs.getInt("customer_id"), 0, after - before, 0);
+                    }
+                }
+            }
+        }
+        delta.write(conn);
+    }
+
+    private static void sumAmounts(Connection conn, String sql, List<Integer> ids, Map<Integer, long[]> sums,
+                                   int slot) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setIds(pstmt, ids);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sums.computeIfAbsent(rs.getInt(1), k -> new long[2])[slot] += Money.toMinor(rs.getBigDecimal(2));
+                }
+            }
+        }
+    }
+
+    // Пересчёт с нуля одним проходом по заказам — сверка после сбоев или ручных правок базы, заполнение
+    // сводки для базы, созданной до неё. Сначала блокируются все строки сводки: приращения других
+    // транзакций ждут конца пересчёта и ложатся поверх него, а не теряются при перезаписи таблиц
+    public static void rebuild(Connection conn) throws SQLException {
+        if (!isAvailable(conn)) {
+            throw new SQLException("Rental rollups unavailable");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : new String[]{"SELECT dimension FROM rental_stats FOR UPDATE",
+                    "SELECT id FROM rental_overdue FOR UPDATE", "SELECT return_date FROM rental_due FOR UPDATE"}) {
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        // строки только блокируются
+                    }
+                }
+            }
+        }
+
+        Delta delta = new Delta();
+        String sql = "SELECT o.customer_id, o.issue_date, o.return_date, b.genre, b.deposit_cost, b.rental_cost_per_day, " +
+                "COALESCE(d.amount, 0) AS discounts, COALESCE(p.amount, 0) AS penalties FROM orders o " +
+                "JOIN books b ON b.isbn = o.isbn " +
+                "LEFT JOIN (SELECT od.order_id, SUM(dc.discount_amount) AS amount FROM orderdiscounts od " +
+                "JOIN discounts dc ON dc.discount_name = od.discount_name GROUP BY od.order_id) d ON d.order_id = o.order_id " +
+                "LEFT JOIN (SELECT op.order_id, SUM(pn.penalty_amount) AS amount FROM orderpenalties op " +
+                "JOIN penalties pn ON pn.penalty_name = op.penalty_name GROUP BY op.order_id) p ON p.order_id = o.order_id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(DatabaseConnection.getDialect().getStreamingFetchSize());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate issue = toLocalDate(rs.getDate("issue_date"));
+                    LocalDate returned = toLocalDate(rs.getDate("return_date"));
+                    long rental = rentalCost(issue, returned, rs.getBigDecimal("rental_cost_per_day"));
+                    long total = PricingEngine.total(rental, Money.toMinor(rs.getBigDecimal("discounts")),
+                            Money.toMinor(rs.getBigDecimal("penalties")));
+                    delta.add(issue, returned, rs.getString("genre"), rs.getInt("customer_id"),
+                            1, total, Money.toMinor(rs.getBigDecimal("deposit_cost")));
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM rental_stats");
+            stmt.executeUpdate("DELETE FROM rental_overdue");
+            stmt.executeUpdate("DELETE FROM rental_due");
+        }
+        delta.write(conn);
+
+        // Накопленная просрочка — сразу на сегодня
+        LocalDate today = LocalDate.now();
+        long[] overdue = new long[2];
+        delta.due.forEach((date, row) -> {
+            if (date.isBefore(today)) {
+                overdue[0] += row[0];
+                overdue[1] += row[1];
+            }
+        });
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO rental_overdue (id, as_of, order_count, deposits) VALUES (?, ?, ?, ?)")) {
+            pstmt.setInt(1, OVERDUE_ROW);
+            pstmt.setDate(2, java.sql.Date.valueOf(today));
+            pstmt.setLong(3, overdue[0]);
+            pstmt.setBigDecimal(4, Money.toDecimal(overdue[1]));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Просрочка на дату as_of хранится одной строкой rental_overdue — суммой корзин rental_due с датой возврата
+    // раньше as_of. С наступлением нового дня корзины прошедших дней (обычно одна) прибавляются к ней, и as_of
+    // сдвигается на сегодня. Заказы с датой возврата раньше as_of пишутся и в корзину, и в накопленную строку
+    public static void rollOverdue(Connection conn, LocalDate today) throws SQLException {
+        if (!isAvailable(conn)) {
+            return;
+        }
+        LocalDate asOf = lockOverdue(conn);
+        if (asOf != null && !asOf.isBefore(today)) {
+            return;
+        }
+        long[] rolled = dueBetween(conn, asOf, today);
+        if (asOf == null) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO rental_overdue (id, as_of, order_count, deposits) VALUES (?, ?, ?, ?)")) {
+                pstmt.setInt(1, OVERDUE_ROW);
+                pstmt.setDate(2, java.sql.Date.valueOf(today));
+                pstmt.setLong(3, rolled[0]);
+                pstmt.setBigDecimal(4, Money.toDecimal(rolled[1]));
+                pstmt.executeUpdate();
+            }
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE rental_overdue SET as_of = ?, order_count = order_count + ?, deposits = deposits + ? WHERE id = ?")) {
+            pstmt.setDate(1, java.sql.Date.valueOf(today));
+            pstmt.setLong(2, rolled[0]);
+            pstmt.setBigDecimal(3, Money.toDecimal(rolled[1]));
+            pstmt.setInt(4, OVERDUE_ROW);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Строка TOTAL и накопленная просрочка плюс корзины после as_of (после rollOverdue на сегодня их нет).
+    // Для даты раньше as_of просрочка суммируется по всем корзинам до неё. Выданные на дату заказы
+    // (выдача не позже даты, возврат не раньше неё или без даты) — все заказы без выданных позже даты
+    // (строки DAY после неё, на сегодня это только брони) и без просроченных; дата возврата не раньше выдачи
+    public static RentalSummary summary(Connection conn, LocalDate date) throws SQLException {
+        if (!isAvailable(conn)) {
+            throw new SQLException("Rental rollups unavailable");
+        }
+        RentalStat total = new RentalStat(Dimension.TOTAL, TOTAL_KEY, 0, 0, 0);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT order_count, revenue, deposits FROM rental_stats WHERE dimension = ? AND dim_key = ?")) {
+            pstmt.setString(1, Dimension.TOTAL.name());
+            pstmt.setString(2, TOTAL_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    total = mapStat(Dimension.TOTAL, TOTAL_KEY, rs);
+                }
+            }
+        }
+        long[] overdue = null;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT as_of, order_count, deposits FROM rental_overdue WHERE id = ?")) {
+            pstmt.setInt(1, OVERDUE_ROW);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    LocalDate asOf = rs.getDate("as_of").toLocalDate();
+                    if (!date.isBefore(asOf)) {
+                        long[] recent = dueBetween(conn, asOf, date);
+                        overdue = new long[]{rs.getLong("order_count") + recent[0],
+                                Money.toMinor(rs.getBigDecimal("deposits")) + recent[1]};
+                    }
+                }
+            }
+        }
+        if (overdue == null) {
+            overdue = dueBetween(conn, null, date);
+        }
+        long[] later = new long[2];
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COALESCE(SUM(order_count), 0), COALESCE(SUM(deposits), 0) FROM rental_stats " +
+                        "WHERE dimension = ? AND dim_key > ?")) {
+            pstmt.setString(1, Dimension.DAY.name());
+            pstmt.setString(2, date.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                later = new long[]{rs.getLong(1), Money.toMinor(rs.getBigDecimal(2))};
+            }
+        }
+        long activeCount = Math.max(total.getOrderCount() - later[0] - overdue[0], 0);
+        long activeDeposits = Math.max(Money.toMinor(total.getDeposits()) - later[1] - overdue[1], 0);
+        return new RentalSummary(date, total, activeCount, activeDeposits, overdue[0], overdue[1]);
+    }
+
+    // {заказы, залоги в копейках} с датой возврата в [from, to); from = null — без нижней границы
+    private static long[] dueBetween(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        if (from != null && !from.isBefore(to)) {
+            return new long[2];
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COALESCE(SUM(order_count), 0), COALESCE(SUM(deposits), 0) FROM rental_due WHERE return_date < ?" +
+                        (from != null ? " AND return_date >= ?" : ""))) {
+            pstmt.setDate(1, java.sql.Date.valueOf(to));
+            if (from != null) {
+                pstmt.setDate(2, java.sql.Date.valueOf(from));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new long[]{rs.getLong(1), Money.toMinor(rs.getBigDecimal(2))};
+            }
+        }
+    }
+
+    // as_of накопленной просрочки со строкой, заблокированной до конца транзакции; null — строки ещё нет
+    private static LocalDate lockOverdue(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT as_of FROM rental_overdue WHERE id = ? FOR UPDATE")) {
+            pstmt.setInt(1, OVERDUE_ROW);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getDate(1).toLocalDate() : null;
+            }
+        }
+    }
+
+    // Дни — от последнего к первому, жанры и клиенты — по убыванию выручки
+    public static List<RentalStat> stats(Connection conn, Dimension dimension, int limit) throws SQLException {
+        String orderBy = dimension == Dimension.DAY ? "dim_key DESC" : "revenue DESC, dim_key";
+        List<RentalStat> stats = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT dim_key, order_count, revenue, deposits FROM rental_stats " +
+                        "WHERE dimension = ? AND order_count > 0 ORDER BY " + orderBy + " LIMIT ?")) {
+            pstmt.setString(1, dimension.name());
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stats.add(mapStat(dimension, rs.getString("dim_key"), rs));
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static RentalStat mapStat(Dimension dimension, String key, ResultSet rs) throws SQLException {
+        return new RentalStat(dimension, key, rs.getLong("order_count"),
+                Money.toMinor(rs.getBigDecimal("revenue")), Money.toMinor(rs.getBigDecimal("deposits")));
+    }
+
+    private static LocalDate toLocalDate(java.sql.Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    private static long rentalCost(LocalDate issue, LocalDate returned, BigDecimal costPerDay) {
+        return issue != null && returned != null
+                ? PricingEngine.rentalCost(Money.toMinor(costPerDay),
+                        Math.toIntExact(issue.toEpochDay()), Math.toIntExact(returned.toEpochDay()))
+                : 0;
+    }
+
+    private static void setIds(PreparedStatement pstmt, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(i + 1, ids.get(i));
+        }
+    }
+
+    // Приращения сводных строк, накопленные в памяти: {число заказов, выручка, залоги} в копейках
+    private static final class Delta {
+        private final Map<Dimension, Map<String, long[]>> stats = new EnumMap<>(Dimension.class);
+        private final Map<LocalDate, long[]> due = new HashMap<>();
+
+        void add(Order order, int sign) {
+            Book book = order.getBook();
+            add(toLocalDate(order.getIssueDate()), toLocalDate(order.getReturnDate()),
+                    book != null ? book.getGenre() : null, order.getCustomerId(),
+                    sign, sign * order.getTotalAmountMinor(), sign * Money.toMinor(order.getDepositAmount()));
+        }
+
+        void add(LocalDate issue, LocalDate returned, String genre, int customerId,
+                 long count, long revenue, long deposits) {
+            if (issue != null) {
+                stat(Dimension.DAY, issue.toString(), count, revenue, deposits);
+            }
+            stat(Dimension.GENRE, genre != null ? genre : "", count, revenue, deposits);
+            stat(Dimension.CUSTOMER, String.valueOf(customerId), count, revenue, deposits);
+            stat(Dimension.TOTAL, TOTAL_KEY, count, revenue, deposits);
+            if (returned != null) {
+                long[] row = due.computeIfAbsent(returned, k -> new long[2]);
+                row[0] += count;
+                row[1] += deposits;
+            }
+        }
+
+        void addRevenue(Order order, long revenue) {
+            Book book = order.getBook();
+            add(toLocalDate(order.getIssueDate()), null, book != null ? book.getGenre() : null,
+                    order.getCustomerId(), 0, revenue, 0);
+        }
+
+        private void stat(Dimension dimension, String key, long count, long revenue, long deposits) {
+            long[] row = stats.computeIfAbsent(dimension, d -> new HashMap<>()).computeIfAbsent(key, k -> new long[3]);
+            row[0] += count;
+            row[1] += revenue;
+            row[2] += deposits;
+        }
+
+        void write(Connection conn) throws SQLException {
+            if (!isAvailable(conn)) {
+                return;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    DatabaseConnection.getDialect().increment(ROLLUP_TABLE, STAT_KEYS, STAT_COUNTERS))) {
+                for (Map.Entry<Dimension, Map<String, long[]>> dimension : stats.entrySet()) {
+                    for (Map.Entry<String, long[]> entry : dimension.getValue().entrySet()) {
+                        long[] row = entry.getValue();
+                        if (row[0] == 0 && row[1] == 0 && row[2] == 0) {
+                            continue;
+                        }
+                        pstmt.setString(1, dimension.getKey().name());
+                        pstmt.setString(2, entry.getKey());
+                        pstmt.setLong(3, row[0]);
+                        pstmt.setBigDecimal(4, Money.toDecimal(row[1]));
+                        pstmt.setBigDecimal(5, Money.toDecimal(row[2]));
+                        pstmt.addBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            // Строка просрочки блокируется до корзин: перенос корзин (rollOverdue) и эта запись идут по очереди
+            LocalDate asOf = lockOverdue(conn);
+            long[] overdue = new long[2];
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    DatabaseConnection.getDialect().increment(DUE_TABLE, DUE_KEYS, DUE_COUNTERS))) {
+                for (Map.Entry<LocalDate, long[]> entry : due.entrySet()) {
+                    long[] row = entry.getValue();
+                    if (row[0] == 0 && row[1] == 0) {
+                        continue;
+                    }
+                    if (asOf != null && entry.getKey().isBefore(asOf)) {
+                        overdue[0] += row[0];
+                        overdue[1] += row[1];
+                    }
+                    pstmt.setDate(1, java.sql.Date.valueOf(entry.getKey()));
+                    pstmt.setLong(2, row[0]);
+                    pstmt.setBigDecimal(3, Money.toDecimal(row[1]));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            if (overdue[0] != 0 || overdue[1] != 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE rental_overdue SET order_count = order_count + ?, deposits = deposits + ? WHERE id = ?")) {
+                    pstmt.setLong(1, overdue[0]);
+                    pstmt.setBigDecimal(2, Money.toDecimal(overdue[1]));
+                    pstmt.setInt(3, OVERDUE_ROW);
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package model;
+
+import java.math.BigDecimal;
+
+// Строка сводной таблицы rental_stats: число заказов, выручка и залоги по одному значению разреза
+public class RentalStat {
+    private final RentalRollups.Dimension dimension;
+    private final String key;
+    private final long orderCount;
+    private final long revenueMinor;
+    private final long depositsMinor;
+
+    public RentalStat(RentalRollups.Dimension dimension, String key, long orderCount, long revenueMinor, long depositsMinor) {
+        this.dimension = dimension;
+        this.key = key;
+        this.orderCount = orderCount;
+        this.revenueMinor = revenueMinor;
+        this.depositsMinor = depositsMinor;
+    }
+
+    public RentalRollups.Dimension getDimension() { return dimension; }
+
+    // Дата выдачи (yyyy-MM-dd), жанр или ID клиента; для TOTAL — пустая строка
+    public String getKey() { return key; }
+
+    public long getOrderCount() { return orderCount; }
+
+    public BigDecimal getRevenue() { return Money.toDecimal(revenueMinor); }
+
+    public BigDecimal getDeposits() { return Money.toDecimal(depositsMinor); }
+
+    public long getRevenueMinor() { return revenueMinor; }
+
+    public long getDepositsMinor() { return depositsMinor; }
+
+    @Override
+    public String toString() {
+        return dimension + " " + key + ": " + orderCount + " orders, " + getRevenue() + " revenue";
+    }
+}
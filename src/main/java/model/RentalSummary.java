@@ -0,0 +1,41 @@
+package model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Итоги на дату: все заказы и выручка по строке TOTAL; выданные на дату — выдача не позже неё, возврат
+// не раньше неё или без даты; просроченные — с датой возврата раньше этой даты (накопленная строка
+// rental_overdue и корзины после неё)
+public class RentalSummary {
+    private final LocalDate date;
+    private final RentalStat total;
+    private final long activeCount;
+    private final long activeDepositsMinor;
+    private final long overdueCount;
+    private final long overdueDepositsMinor;
+
+    public RentalSummary(LocalDate date, RentalStat total, long activeCount, long activeDepositsMinor,
+                         long overdueCount, long overdueDepositsMinor) {
+        this.date = date;
+        this.total = total;
+        this.activeCount = activeCount;
+        this.activeDepositsMinor = activeDepositsMinor;
+        this.overdueCount = overdueCount;
+        this.overdueDepositsMinor = overdueDepositsMinor;
+    }
+
+    public LocalDate getDate() { return date; }
+
+    public long getOrderCount() { return total.getOrderCount(); }
+
+    public BigDecimal getRevenue() { return total.getRevenue(); }
+
+    public long getActiveCount() { return activeCount; }
+
+    // Залоги по выданным на дату заказам
+    public BigDecimal getActiveDeposits() { return Money.toDecimal(activeDepositsMinor); }
+
+    public long getOverdueCount() { return overdueCount; }
+
+    public BigDecimal getOverdueDeposits() { return Money.toDecimal(overdueDepositsMinor); }
+}
@@ -0,0 +1,277 @@
+package model;
+
+import util.IntObjectMap;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Инвертированный индекс: термин -> отсортированный список идентификаторов документов.
+// Термины хранятся в упорядоченном словаре, поэтому поиск по префиксу — это диапазон subMap.
+// Документ описывается несколькими полями с весами; запрос требует совпадения всех слов (AND).
+public class SearchIndex {
+    private static final int EXACT_MATCH_BOOST = 2;
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    // Термины документа с весами — нужны для удаления документа из индекса
+    private final IntObjectMap<Map<String, Integer>> documents = new IntObjectMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Добавляет или заменяет документ; fields[i] индексируется с весом weights[i]
+    public void put(int id, String[] fields, int[] weights) {
+        Map<String, Integer> documentTerms = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            for (String token : tokenize(fields[i])) {
+                documentTerms.merge(token, weights[i], Math::max);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            documentTerms.forEach((term, weight) ->
+                    terms.computeIfAbsent(term, t -> new Postings()).put(id, weight));
+            documents.put(id, documentTerms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(int id) {
+        Map<String, Integer> documentTerms = documents.remove(id);
+        if (documentTerms == null) {
+            return;
+        }
+        for (String term : documentTerms.keySet()) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // До limit идентификаторов по убыванию релевантности. Каждое слово запроса совпадает
+    // с термином целиком или как префикс (для набора «на лету»); точное совпадение весит больше.
+    public int[] search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        Scored result;
+        try {
+            List<Scored> perToken = new ArrayList<>(tokens.size());
+            for (String token : new LinkedHashSet<>(tokens)) {
+                Scored matches = matchToken(token);
+                if (matches.size == 0) {
+                    return new int[0];
+                }
+                perToken.add(matches);
+            }
+            // Пересечение начинаем с самого короткого списка
+            perToken.sort(Comparator.comparingInt(scored -> scored.size));
+            result = perToken.get(0);
+            for (int i = 1; i < perToken.size() && result.size > 0; i++) {
+                result = result.intersect(perToken.get(i));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result.top(limit);
+    }
+
+    // Все термины диапазона префикса без обрезки: отброшенный термин незаметно терял бы
+    // документы до пересечения. Списки сливаются попарно по уровням — O(N log k) вместо O(N·k).
+    private Scored matchToken(String token) {
+        List<Scored> parts = new ArrayList<>();
+        for (Map.Entry<String, Postings> entry
+                : terms.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int boost = entry.getKey().equals(token) ? EXACT_MATCH_BOOST : 1;
+            parts.add(Scored.of(entry.getValue(), boost));
+        }
+        if (parts.isEmpty()) {
+            return new Scored(0);
+        }
+        while (parts.size() > 1) {
+            List<Scored> merged = new ArrayList<>((parts.size() + 1) / 2);
+            for (int i = 0; i + 1 < parts.size(); i += 2) {
+                merged.add(parts.get(i).union(parts.get(i + 1)));
+            }
+            if (parts.size() % 2 == 1) {
+                merged.add(parts.get(parts.size() - 1));
+            }
+            parts = merged;
+        }
+        return parts.get(0);
+    }
+
+    // Слова из букв и цифр в нижнем регистре; «ё» приравнивается к «е»
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                current.append(c == 'ё' ? 'е' : c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    // Идентификаторы термина по возрастанию и вес поля, в котором он встретился
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private byte[] weights = new byte[4];
+        private int size;
+
+        void put(int id, int weight) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                weights[position] = (byte) Math.max(weights[position], weight);
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(weights, position, weights, position + 1, size - position);
+            ids[position] = id;
+            weights[position] = (byte) weight;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // Промежуточный результат: идентификаторы по возрастанию и их очки
+    private static final class Scored {
+        private final int[] ids;
+        private final int[] scores;
+        private int size;
+
+        Scored(int capacity) {
+            ids = new int[capacity];
+            scores = new int[capacity];
+        }
+
+        static Scored of(Postings postings, int boost) {
+            Scored scored = new Scored(postings.size);
+            for (int i = 0; i < postings.size; i++) {
+                scored.append(postings.ids[i], postings.weights[i] * boost);
+            }
+            return scored;
+        }
+
+        // Объединение вариантов префикса; для документа берётся лучший из них
+        Scored union(Scored other) {
+            Scored merged = new Scored(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && ids[i] < other.ids[j])) {
+                    merged.append(ids[i], scores[i]);
+                    i++;
+                } else if (i == size || other.ids[j] < ids[i]) {
+                    merged.append(other.ids[j], other.scores[j]);
+                    j++;
+                } else {
+                    merged.append(ids[i], Math.max(scores[i], other.scores[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        Scored intersect(Scored other) {
+            Scored result = new Scored(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    result.append(ids[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        void append(int id, int score) {
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+
+        // Лучшие limit документов; при равных очках — меньший идентификатор
+        int[] top(int limit) {
+            PriorityQueue<Integer> heap = new PriorityQueue<>(
+                    Math.min(limit, Math.max(size, 1)) + 1,
+                    (a, b) -> scores[a] != scores[b] ? Integer.compare(scores[a], scores[b]) : Integer.compare(ids[b], ids[a]));
+            for (int i = 0; i < size; i++) {
+                heap.add(i);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            int[] result = new int[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids[heap.poll()];
+            }
+            return result;
+        }
+    }
+}
@@ -2,13 +2,44 @@ package org.example.biblio;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import controller.OrderController;
+import controller.OverdueScanner;
+import controller.ReportController;
+import model.ChangeLogPoller;
+import model.DataModel;
+import model.RentalRollups;
+import util.DataAccessExecutor;
+import util.DatabaseConfig;
 import util.DatabaseConnection;
+import util.SchemaBootstrap;
 import view.LoginView;
+import java.sql.SQLException;
 
 public class MainApp extends Application {
+    private OverdueScanner overdueScanner;
 
     @Override
     public void start(Stage primaryStage) {
+        ChangeLogPoller.start(DatabaseConfig.getChangePollInterval());
+        // Таблицы сводки созданы при подключении (SchemaBootstrap.ensureExtensions) и с тех пор получают
+        // приращения; заказы, сделанные до их появления, добавляет пересчёт
+        if (SchemaBootstrap.wasCreated(RentalRollups.ROLLUP_TABLE)) {
+            DataAccessExecutor.runInBackground(() -> {
+                try {
+                    new ReportController().rebuild();
+                    System.out.println("Rental rollups built");
+                } catch (SQLException e) {
+                    System.err.println("Rental rollups rebuild failed: " + e.getMessage());
+                }
+            });
+        }
+
+        // Штраф за просрочку начисляется в фоне, если он задан в настройках (overdue.penalty)
+        String overduePenalty = DatabaseConfig.getOverduePenaltyName();
+        if (!overduePenalty.isEmpty()) {
+            overdueScanner = new OverdueScanner(new OrderController(), overduePenalty, DatabaseConfig.getOverdueBatchSize());
+            overdueScanner.start();
+        }
 
         LoginView loginView = new LoginView(primaryStage);
         primaryStage.setScene(loginView.getScene());
@@ -21,8 +52,13 @@ public class MainApp extends Application {
     @Override
     public void stop() {
 
+        if (overdueScanner != null) {
+            overdueScanner.stop();
+        }
+        ChangeLogPoller.stop();
+        DataAccessExecutor.shutdown();
         DatabaseConnection.closeAll();
-        System.out.println("Закрыто");
+        System.out.println("Закрыто (" + DataModel.getCacheStats() + ")");
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,146 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Кэш ограниченного размера: при переполнении вытесняется давно не использованная запись (LRU),
+// запись старше срока жизни считается отсутствующей. Ведёт статистику попаданий, промахов и вытеснений.
+public class BoundedCache<K, V> {
+    private final String name;
+    private final int capacity;
+    // 0 — без срока жизни
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCache(String name, int capacity, long ttl, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + name);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.ttlNanos = unit.toNanos(ttl);
+        // Порядок доступа: первой идёт самая давно использованная запись
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            expirations.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    // Проверка без влияния на порядок вытеснения и статистику
+    public synchronized boolean contains(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && !isExpired(entry);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // Атомарная замена содержимого, например после полного перечитывания справочника
+    public synchronized void replaceAll(Map<K, V> values) {
+        entries.clear();
+        long now = System.nanoTime();
+        values.forEach((key, value) -> entries.put(key, new Entry<>(value, now)));
+    }
+
+    // Копия актуальных записей; порядок вытеснения не меняется
+    public synchronized Map<K, V> snapshot() {
+        Map<K, V> result = new LinkedHashMap<>();
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            if (!isExpired(entry.getValue())) {
+                result.put(entry.getKey(), entry.getValue().value);
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public String getStats() {
+        return String.format("%s: size=%d/%d hits=%d misses=%d hitRate=%.1f%% evicted=%d expired=%d",
+                name, size(), capacity, getHits(), getMisses(), getHitRate() * 100, getEvictions(), getExpirations());
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package util;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Чтение таблицы changelog, которую заполняют триггеры из db/changelog.sql
+public final class ChangeLog {
+    public static final char INSERT = 'I';
+    public static final char UPDATE = 'U';
+    public static final char DELETE = 'D';
+    public static final String TABLE = "changelog";
+
+    // Сколько последних номеров проверяется на пропуски при установке позиции на конец журнала
+    private static final int TRAILING_WINDOW = 1000;
+    // Больше пропусков — разбирать изменения дороже, чем перечитать всё
+    private static final int MAX_GAPS = 1000;
+    private static final long GAP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    private ChangeLog() {
+    }
+
+    public static final class Change {
+        private final long changeId;
+        private final String tableName;
+        private final int rowId;
+        private final char operation;
+
+        public Change(long changeId, int rowId, char operation) {
+            this(changeId, null, rowId, operation);
+        }
+
+        public Change(long changeId, String tableName, int rowId, char operation) {
+            this.changeId = changeId;
+            this.tableName = tableName;
+            this.rowId = rowId;
+            this.operation = operation;
+        }
+
+        public long getChangeId() { return changeId; }
+
+        public String getTableName() { return tableName; }
+
+        public int getRowId() { return rowId; }
+
+        public char getOperation() { return operation; }
+    }
+
+    // {минимальный, максимальный} change_id; {0, 0} для пустого журнала
+    public static long[] versionRange(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT COALESCE(MIN(change_id), 0), COALESCE(MAX(change_id), 0) FROM changelog")) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    // Последний change_id: один проход по первичному ключу, дешёвый запрос для частого опроса
+    public static long latestVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(change_id), 0) FROM changelog")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Позиция чтения журнала. Номер change_id выдаётся при вставке записи, а видна она только после
+    // фиксации транзакции, поэтому запись с меньшим номером может появиться позже записи с большим.
+    // Недостающие номера ниже позиции запоминаются и перечитываются при каждом чтении, пока запись
+    // не появится или не истечёт GAP_TIMEOUT_MS (транзакция откатилась или номер пропущен при вставке).
+    public static final class Cursor {
+        private long version;
+        // Номер пропуска -> момент, после которого он забывается
+        private final Map<Long, Long> gaps;
+
+        private Cursor(long version, Map<Long, Long> gaps) {
+            this.version = version;
+            this.gaps = gaps;
+        }
+
+        // Позиция на конце журнала; номера, которых не хватает среди последних TRAILING_WINDOW, — пропуски
+        public static Cursor atEnd(Connection conn) throws SQLException {
+            long latest = latestVersion(conn);
+            long from = Math.max(latest - TRAILING_WINDOW, 0);
+            Cursor cursor = new Cursor(from, new HashMap<>());
+            List<Long> present = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT change_id FROM changelog WHERE change_id > ? AND change_id <= ? ORDER BY change_id")) {
+                pstmt.setLong(1, from);
+                pstmt.setLong(2, latest);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        present.add(rs.getLong(1));
+                    }
+                }
+            }
+            cursor.collectGaps(present, latest, System.currentTimeMillis());
+            return cursor;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // Есть записи после позиции или ещё не появившиеся пропуски
+        public boolean isBehind(long latest) {
+            return latest != version || !gaps.isEmpty();
+        }
+
+        // Запись с этим номером уже прочитана через эту позицию
+        public boolean covers(long changeId) {
+            return changeId <= version && !gaps.containsKey(changeId);
+        }
+
+        public Cursor copy() {
+            return new Cursor(version, new HashMap<>(gaps));
+        }
+
+        // Записи (version, upTo] и появившиеся пропуски в порядке номеров; позиция сдвигается на upTo.
+        // null — пропусков больше MAX_GAPS, изменения не восстановить и нужна полная перезагрузка
+        public List<Change> advance(Connection conn, long upTo) throws SQLException {
+            long now = System.currentTimeMillis();
+            gaps.values().removeIf(deadline -> deadline < now);
+            List<Change> changes = new ArrayList<>();
+            if (!gaps.isEmpty()) {
+                List<Long> ids = new ArrayList<>(gaps.keySet());
+                for (int from = 0; from < ids.size(); from += QUERY_CHUNK_SIZE) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + QUERY_CHUNK_SIZE, ids.size()));
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "SELECT change_id, table_name, row_id, operation FROM changelog WHERE change_id IN ("
+                                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            pstmt.setLong(i + 1, chunk.get(i));
+                        }
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                Change change = mapChange(rs);
+                                gaps.remove(change.getChangeId());
+                                changes.add(change);
+                            }
+                        }
+                    }
+                }
+            }
+            if (upTo > version) {
+                List<Change> fresh = changesBetween(conn, version, upTo);
+                if (upTo - version - fresh.size() + gaps.size() > MAX_GAPS) {
+                    return null;
+                }
+                List<Long> present = new ArrayList<>(fresh.size());
+                for (Change change : fresh) {
+                    present.add(change.getChangeId());
+                }
+                collectGaps(present, upTo, now);
+                changes.addAll(fresh);
+            }
+            changes.sort(Comparator.comparingLong(Change::getChangeId));
+            return changes;
+        }
+
+        // present — номера в (version, upTo] по возрастанию; остальные номера диапазона становятся пропусками
+        private void collectGaps(List<Long> present, long upTo, long now) {
+            long expected = version + 1;
+            for (long id : present) {
+                for (; expected < id; expected++) {
+                    gaps.put(expected, now + GAP_TIMEOUT_MS);
+                }
+                expected = id + 1;
+            }
+            for (; expected <= upTo; expected++) {
+                gaps.put(expected, now + GAP_TIMEOUT_MS);
+            }
+            version = upTo;
+        }
+    }
+
+    // Изменения всех таблиц в диапазоне (version, upTo]
+    public static List<Change> changesBetween(Connection conn, long version, long upTo) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT change_id, table_name, row_id, operation FROM changelog " +
+                        "WHERE change_id > ? AND change_id <= ? ORDER BY change_id")) {
+            pstmt.setLong(1, version);
+            pstmt.setLong(2, upTo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(mapChange(rs));
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static Change mapChange(ResultSet rs) throws SQLException {
+        return new Change(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getString(4).charAt(0));
+    }
+}
@@ -0,0 +1,54 @@
+package util;
+
+import javafx.application.Platform;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Выполняет обращения к базе вне потока JavaFX; параллелизм фактически ограничен размером пула соединений
+public final class DataAccessExecutor {
+    private static final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("db-access-", 0).factory());
+
+    // Поток, в котором обновляются наблюдаемые списки; без JavaFX (бенчмарки) его можно заменить
+    private static volatile Executor uiExecutor = Platform::runLater;
+
+    // Исполнитель, передающий продолжения в поток JavaFX
+    public static final Executor FX = task -> uiExecutor.execute(task);
+
+    private DataAccessExecutor() {
+    }
+
+    // Результат (или ошибка) доставляется в поток JavaFX
+    public static <R> CompletableFuture<R> supply(Callable<R> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor).whenCompleteAsync((result, error) -> {}, FX);
+    }
+
+    // Фоновая задача без передачи результата в поток JavaFX
+    public static CompletableFuture<Void> runInBackground(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    public static void setUiExecutor(Executor executor) {
+        uiExecutor = executor;
+    }
+
+    public static Executor background() {
+        return executor;
+    }
+
+    public static void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+// Параметры подключения из database.properties; любое значение переопределяется
+// системным свойством с префиксом biblio. (например, -Dbiblio.db.url=jdbc:h2:./biblio)
+public final class DatabaseConfig {
+    private static final String RESOURCE = "/database.properties";
+    private static final String SYSTEM_PREFIX = "biblio.";
+    private static final Properties properties = load();
+
+    private DatabaseConfig() {
+    }
+
+    private static Properties load() {
+        Properties result = new Properties();
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                result.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + RESOURCE + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static String get(String key, String defaultValue) {
+        return System.getProperty(SYSTEM_PREFIX + key, properties.getProperty(key, defaultValue));
+    }
+
+    public static String getUrl() {
+        return get("db.url", "jdbc:mysql://localhost:3306/biblioteka?useServerPrepStmts=true&rewriteBatchedStatements=true");
+    }
+
+    public static String getUser() {
+        return get("db.user", "root");
+    }
+
+    public static String getPassword() {
+        return get("db.password", "");
+    }
+
+    // Создать схему при первом подключении к пустой базе
+    public static boolean isBootstrapEnabled() {
+        return Boolean.parseBoolean(get("db.bootstrap", "false"));
+    }
+
+    // Заполнить только что созданную схему демонстрационными данными
+    public static boolean isSeedEnabled() {
+        return Boolean.parseBoolean(get("db.seed", "false"));
+    }
+
+    // Число подготовленных запросов, кэшируемых на одно соединение пула
+    public static int getStatementCacheSize() {
+        return Integer.parseInt(get("db.statementCacheSize", "64"));
+    }
+
+    // Интервал опроса журнала изменений другими клиентами, мс; 0 — опрос выключен
+    public static long getChangePollInterval() {
+        return Long.parseLong(get("db.changePollMillis", "1000"));
+    }
+
+    // Страховочный срок жизни кэша модели при работающем опросе журнала, минуты
+    public static long getPolledCacheTimeoutMinutes() {
+        return Long.parseLong(get("db.polledCacheTimeoutMinutes", "60"));
+    }
+
+    // Ёмкость и срок жизни (0 — без срока) общего кэша сущностей: books, discounts, penalties
+    public static int getCacheCapacity(String cache, int defaultCapacity) {
+        return Integer.parseInt(get("db.cache." + cache + ".size", String.valueOf(defaultCapacity)));
+    }
+
+    public static long getCacheTtlMinutes(String cache, long defaultTtl) {
+        return Long.parseLong(get("db.cache." + cache + ".ttlMinutes", String.valueOf(defaultTtl)));
+    }
+
+    // Штраф, начисляемый заказам с прошедшей датой возврата; пустое значение — начисление выключено
+    public static String getOverduePenaltyName() {
+        return get("overdue.penalty", "").trim();
+    }
+
+    // Заказов в одной транзакции начисления штрафов
+    public static int getOverdueBatchSize() {
+        return Integer.parseInt(get("overdue.batchSize", "100"));
+    }
+
+    public static SqlDialect getDialect() {
+        return SqlDialect.fromUrl(getUrl());
+    }
+}
@@ -1,55 +1,238 @@
 package util;
 
 import java.sql.*;
+import java.util.Iterator;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class DatabaseConnection {
-    private static final BlockingQueue<Connection> pool = new LinkedBlockingQueue<>(10);
-    private static final String URL = "jdbc:mysql://localhost:3306/biblioteka";
-    private static final String USER = "root";
-    private static final String PASSWORD = "";
+    // Параметры подключения — из database.properties или системных свойств biblio.db.*
+    private static final String URL = DatabaseConfig.getUrl();
+    private static final String USER = DatabaseConfig.getUser();
+    private static final String PASSWORD = DatabaseConfig.getPassword();
+    private static final SqlDialect DIALECT = SqlDialect.fromUrl(URL);
+
+    private static final int MAX_POOL_SIZE = 10;
+    private static final int MIN_IDLE = 2;
+    private static final long BORROW_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long EVICTION_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+
+    // Свободные соединения; берём с головы (LIFO), чтобы редко используемые старели и вытеснялись
+    private static final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private static final Semaphore permits = new Semaphore(MAX_POOL_SIZE, true);
+    private static final AtomicInteger openConnections = new AtomicInteger();
+    private static volatile boolean shutdown;
+
+    // Статистика пула
+    private static final LongAdder borrowCount = new LongAdder();
+    private static final LongAdder borrowWaitNanos = new LongAdder();
+    private static final LongAdder exhaustedCount = new LongAdder();
+    private static final LongAdder timeoutCount = new LongAdder();
+    private static final LongAdder evictedCount = new LongAdder();
+
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-pool-evictor");
+        t.setDaemon(true);
+        return t;
+    });
 
     static {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            initializePool();
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Database driver not found", e);
+        // Драйверы MySQL и H2 регистрируются через DriverManager автоматически
+        bootstrapSchema();
+        initializePool();
+    }
+
+    // Пустая база (например, новая встраиваемая H2) получает схему до открытия пула,
+    // существующая — таблицы, добавленные в схему позже
+    private static void bootstrapSchema() {
+        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            if (DatabaseConfig.isBootstrapEnabled()
+                    && SchemaBootstrap.ensureSchema(conn, DIALECT, DatabaseConfig.isSeedEnabled())) {
+                System.out.println("Database schema created for " + DIALECT);
+            }
+            try {
+                SchemaBootstrap.ensureExtensions(conn, DIALECT);
+            } catch (SQLException e) {
+                // Без прав на DDL приложение работает без журнала изменений, сводок и учёта экземпляров
+                System.err.println("Failed to create schema extensions: " + e.getMessage());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to bootstrap database schema", e);
         }
     }
 
     private static void initializePool() {
-        for (int i = 0; i < 10; i++) {
-            pool.add(createConnection());
+        for (int i = 0; i < MIN_IDLE; i++) {
+            try {
+                idle.offerFirst(createConnection());
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to create DB connection", e);
+            }
         }
+        evictor.scheduleWithFixedDelay(DatabaseConnection::evictIdleConnections,
+                EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static PooledConnection createConnection() throws SQLException {
+        PooledConnection pooled = new PooledConnection(DriverManager.getConnection(URL, USER, PASSWORD));
+        openConnections.incrementAndGet();
+        return pooled;
     }
 
-    private static Connection createConnection() {
+    public static SqlDialect getDialect() {
+        return DIALECT;
+    }
+
+    // Возвращает прокси, чей close() отдаёт соединение обратно в пул
+    public static Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = permits.tryAcquire();
+        if (!acquired) {
+            exhaustedCount.increment();
+            try {
+                acquired = permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+        }
+        borrowWaitNanos.add(System.nanoTime() - start);
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTimeoutException("Connection pool exhausted: no connection available within "
+                    + BORROW_TIMEOUT_MS + " ms (max " + MAX_POOL_SIZE + ")");
+        }
+
         try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to create DB connection", e);
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.isValid(VALIDATION_TIMEOUT_SEC)) {
+                    borrowCount.increment();
+                    return pooled.lease();
+                }
+                discard(pooled);
+            }
+            pooled = createConnection();
+            borrowCount.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
         }
     }
 
-    public static Connection getConnection() throws SQLException {
-        Connection conn = pool.poll();
-        return (conn == null || conn.isClosed()) ? createConnection() : conn;
+    static void returnConnection(PooledConnection pooled) {
+        try {
+            if (shutdown) {
+                discard(pooled);
+                return;
+            }
+            try {
+                pooled.reset();
+                pooled.markReturned();
+                idle.offerFirst(pooled);
+            } catch (SQLException e) {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
     }
 
     public static void releaseConnection(Connection conn) {
-        if (conn != null) pool.offer(conn);
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    private static void discard(PooledConnection pooled) {
+        pooled.closePhysical();
+        openConnections.decrementAndGet();
+    }
+
+    private static void evictIdleConnections() {
+        long deadline = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > MIN_IDLE) {
+            PooledConnection pooled = it.next();
+            if (pooled.getLastReturnedAt() < deadline && idle.removeLastOccurrence(pooled)) {
+                discard(pooled);
+                evictedCount.increment();
+            }
+        }
+    }
+
+    public static int getActiveCount() {
+        return MAX_POOL_SIZE - permits.availablePermits();
+    }
+
+    public static int getIdleCount() {
+        return idle.size();
+    }
+
+    public static int getOpenCount() {
+        return openConnections.get();
+    }
+
+    public static long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public static double getAverageBorrowWaitMillis() {
+        long borrows = borrowCount.sum() + timeoutCount.sum();
+        return borrows == 0 ? 0 : borrowWaitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    public static long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    public static long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public static long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    public static long getStatementCacheHits() {
+        return PooledConnection.getStatementHits();
+    }
+
+    public static long getStatementCacheMisses() {
+        return PooledConnection.getStatementMisses();
+    }
+
+    public static double getStatementCacheHitRate() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static String getPoolStats() {
+        return String.format("pool: open=%d active=%d idle=%d borrows=%d avgWait=%.2fms exhausted=%d timeouts=%d evicted=%d" +
+                        " statements: hits=%d misses=%d hitRate=%.1f%%",
+                getOpenCount(), getActiveCount(), getIdleCount(), getBorrowCount(),
+                getAverageBorrowWaitMillis(), getExhaustedCount(), getTimeoutCount(), getEvictedCount(),
+                getStatementCacheHits(), getStatementCacheMisses(), getStatementCacheHitRate() * 100);
     }
 
     public static void closeAll() {
-        pool.forEach(c -> {
-            try {
-                if (c != null && !c.isClosed()) {
-                    c.close();
-                }
-            } catch (SQLException ignored) {}
-        });
-        pool.clear();
-        System.out.println("All database connections closed");
+        shutdown = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+        System.out.println("All database connections closed (" + getPoolStats() + ")");
     }
-}
\ No newline at end of file
+}
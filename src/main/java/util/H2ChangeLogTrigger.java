@@ -0,0 +1,85 @@
+package util;
+
+import org.h2.api.Trigger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+// Триггер H2, пишущий в changelog те же записи, что MySQL-триггеры из db/changelog.sql.
+// Скидки и штрафы заказа регистрируются как изменение самого заказа; у справочников скидок
+// и штрафов ключ строковый, поэтому их изменение пишется с row_id = 0 («справочник изменился»).
+public class H2ChangeLogTrigger implements Trigger {
+    // Таблица -> {таблица в журнале, столбец ключа}; null вместо столбца — справочник
+    private static final Map<String, String[]> TARGETS = Map.of(
+            "discounts", new String[]{"discounts", null},
+            "penalties", new String[]{"penalties", null},
+            "books", new String[]{"books", "isbn"},
+            "customers", new String[]{"customers", "customer_id"},
+            "orders", new String[]{"orders", "order_id"},
+            "users", new String[]{"users", "user_id"},
+            "book_copies", new String[]{"book_copies", "isbn"},
+            "orderdiscounts", new String[]{"orders", "order_id"},
+            "orderpenalties", new String[]{"orders", "order_id"}
+    );
+
+    private String logTable;
+    private int keyIndex = -1;
+    private boolean linkTable;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        String table = tableName.toLowerCase(Locale.ROOT);
+        String[] target = TARGETS.get(table);
+        if (target == null) {
+            throw new SQLException("No changelog mapping for table " + tableName);
+        }
+        logTable = target[0];
+        linkTable = !table.equals(logTable);
+        if (target[1] == null) {
+            return;
+        }
+
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                if (rs.getString("COLUMN_NAME").equalsIgnoreCase(target[1])) {
+                    keyIndex = rs.getInt("ORDINAL_POSITION") - 1;
+                }
+            }
+        }
+        if (keyIndex < 0) {
+            throw new SQLException("Key column " + target[1] + " not found in " + tableName);
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        // MERGE с теми же значениями — не изменение
+        if (oldRow != null && newRow != null && Arrays.equals(oldRow, newRow)) {
+            return;
+        }
+        Object[] row = newRow != null ? newRow : oldRow;
+        char operation;
+        if (linkTable) {
+            operation = ChangeLog.UPDATE;
+        } else if (oldRow == null) {
+            operation = ChangeLog.INSERT;
+        } else if (newRow == null) {
+            operation = ChangeLog.DELETE;
+        } else {
+            operation = ChangeLog.UPDATE;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO changelog (table_name, row_id, operation) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, logTable);
+            pstmt.setInt(2, keyIndex >= 0 ? ((Number) row[keyIndex]).intValue() : 0);
+            pstmt.setString(3, String.valueOf(operation));
+            pstmt.executeUpdate();
+        }
+    }
+}
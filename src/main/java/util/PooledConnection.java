@@ -0,0 +1,277 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Физическое соединение, принадлежащее пулу DatabaseConnection
+class PooledConnection {
+    private static final int STATEMENT_CACHE_SIZE = DatabaseConfig.getStatementCacheSize();
+    private static final LongAdder statementHits = new LongAdder();
+    private static final LongAdder statementMisses = new LongAdder();
+
+    private final Connection physical;
+    private final long createdAt;
+    private volatile long lastReturnedAt;
+    // Подготовленные запросы по тексту SQL, вытеснение LRU. Соединением владеет одна выдача,
+    // поэтому синхронизация не нужна; вытесняющий поток закрывает только свободные соединения.
+    private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+            if (size() <= STATEMENT_CACHE_SIZE) {
+                return false;
+            }
+            eldest.getValue().evict();
+            return true;
+        }
+    };
+
+    PooledConnection(Connection physical) {
+        this.physical = physical;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    void markReturned() {
+        lastReturnedAt = System.currentTimeMillis();
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return !physical.isClosed() && physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Сбрасываем состояние сессии перед возвратом в пул
+    void reset() throws SQLException {
+        for (CachedStatement cached : statements.values()) {
+            cached.release();
+        }
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+    }
+
+    void closePhysical() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closeQuietly();
+        }
+        statements.clear();
+        try {
+            if (!physical.isClosed()) {
+                physical.close();
+            }
+        } catch (SQLException ignored) {}
+    }
+
+    static long getStatementHits() {
+        return statementHits.sum();
+    }
+
+    static long getStatementMisses() {
+        return statementMisses.sum();
+    }
+
+    // Кэшируются prepareStatement(sql) и prepareStatement(sql, autoGeneratedKeys); если тот же запрос
+    // ещё не закрыт (вложенное использование), выдаётся обычный некэшируемый PreparedStatement
+    private PreparedStatement prepare(Connection owner, String sql, Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "#" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.isUsable()) {
+            statementHits.increment();
+            return cached.borrow(owner);
+        }
+        statementMisses.increment();
+        if (cached != null && cached.inUse) {
+            return autoGeneratedKeys == null
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        PreparedStatement statement = autoGeneratedKeys == null
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        cached = new CachedStatement(statement);
+        statements.put(key, cached);
+        return cached.borrow(owner);
+    }
+
+    // Каждая выдача получает собственный прокси: повторный close() старой выдачи не вернёт соединение дважды
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease());
+    }
+
+    private class Lease implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        DatabaseConnection.returnConnection(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (closed ? ", closed]" : "]");
+                case "prepareStatement":
+                    if (!closed && args.length == 1) {
+                        return prepare((Connection) proxy, (String) args[0], null);
+                    }
+                    if (!closed && args.length == 2 && method.getParameterTypes()[1] == int.class) {
+                        return prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                    }
+                    // остальные варианты и закрытая выдача обрабатываются как обычно
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection is already returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    // Физический PreparedStatement из кэша; наружу отдаётся прокси, чей close() возвращает его в кэш
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+        // Номер выдачи: прокси прошлой выдачи не может вернуть запрос, выданный заново
+        private int generation;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        boolean isUsable() {
+            try {
+                return !inUse && !statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        PreparedStatement borrow(Connection owner) {
+            inUse = true;
+            generation++;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(owner));
+        }
+
+        // Закрытие выданного прокси: очищаем параметры и открытый результат, но не сам запрос
+        void release() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {}
+        }
+
+        private class Handle implements InvocationHandler {
+            private final Connection owner;
+            private final int borrowedAt = generation;
+            private boolean closed;
+
+            Handle(Connection owner) {
+                this.owner = owner;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                // Запрос вернули в кэш вместе с соединением — этот прокси больше недействителен
+                if (borrowedAt != generation || !inUse) {
+                    closed = true;
+                }
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || statement.isClosed();
+                    case "getConnection":
+                        return owner;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + statement + (closed ? ", closed]" : "]");
+                    default:
+                        if (closed) {
+                            throw new SQLException("Statement is already closed");
+                        }
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Создаёт схему в пустой базе: таблицы, журнал изменений с триггерами, индексы и, по желанию, демо-данные
+public final class SchemaBootstrap {
+    private static final String SCHEMA_SCRIPT = "db/schema.sql";
+    private static final String INDEX_SCRIPT = "db/indexes.sql";
+    private static final String ROLLUP_SCRIPT = "db/rollups.sql";
+    private static final String AVAILABILITY_SCRIPT = "db/availability.sql";
+    private static final String SEED_SCRIPT = "db/seed.sql";
+    private static final String[] ROLLUP_TABLES = {"rental_stats", "rental_due", "rental_overdue"};
+    private static final String COPIES_TABLE = "book_copies";
+    private static final String RETURN_DATE_INDEX = "idx_orders_return_date";
+    private static final Pattern CREATE_TRIGGER = Pattern.compile("(?is)^CREATE\\s+TRIGGER\\s+(\\w+)\\b.*?\\sON\\s+(\\w+)\\b.*");
+
+    // Таблицы, созданные при этом запуске рядом с уже существующими заказами: их ещё нужно заполнить
+    private static final Set<String> created = ConcurrentHashMap.newKeySet();
+
+    private SchemaBootstrap() {
+    }
+
+    // true, если схема была создана; существующая схема не изменяется
+    public static boolean ensureSchema(Connection conn, SqlDialect dialect, boolean seed) throws SQLException {
+        if (tableExists(conn, "books")) {
+            return false;
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            runScript(conn, SCHEMA_SCRIPT);
+            // Журнал ставит триггеры и на book_copies
+            runScript(conn, AVAILABILITY_SCRIPT);
+            runScript(conn, dialect.getChangeLogScript());
+            runScript(conn, INDEX_SCRIPT);
+            runScript(conn, ROLLUP_SCRIPT);
+            if (seed) {
+                runScript(conn, SEED_SCRIPT);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        if (seed) {
+            created.add(ROLLUP_TABLES[0]);
+        }
+        return true;
+    }
+
+    // Журнал изменений, таблицы и индексы, добавленные в схему позже, для базы, созданной до них. Выполняется
+    // при каждом подключении до открытия пула, чтобы записи не начинались раньше, чем появятся таблицы и триггеры.
+    // Шаги независимы: сбой одного не мешает остальным, первая ошибка пробрасывается после всех
+    public static void ensureExtensions(Connection conn, SqlDialect dialect) throws SQLException {
+        if (!tableExists(conn, "books")) {
+            return;
+        }
+        SQLException failure = null;
+        // Экземпляры — до журнала: его триггеры ставятся и на book_copies
+        List<Extension> steps = List.of(
+                () -> {
+                    if (!tableExists(conn, COPIES_TABLE)) {
+                        runScript(conn, AVAILABILITY_SCRIPT);
+                    }
+                },
+                () -> ensureChangeLog(conn, dialect),
+                () -> {
+                    if (!tablesExist(conn, ROLLUP_TABLES)) {
+                        runScript(conn, ROLLUP_SCRIPT);
+                        created.add(ROLLUP_TABLES[0]);
+                    }
+                },
+                () -> {
+                    // В MySQL нет CREATE INDEX IF NOT EXISTS — наличие индекса проверяется по метаданным
+                    if (!indexExists(conn, "orders", RETURN_DATE_INDEX)) {
+                        try (Statement stmt = conn.createStatement()) {
+                            stmt.execute("CREATE INDEX " + RETURN_DATE_INDEX + " ON orders (return_date)");
+                        }
+                    }
+                });
+        for (Extension step : steps) {
+            try {
+                step.apply();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Журнал изменений для базы, созданной без него (схему могли завести вручную, без db.bootstrap):
+    // таблица и триггеры, которых ещё нет. Без журнала клиенты не видят правок друг друга иначе как
+    // полной перезагрузкой. Остальные операторы скрипта идемпотентны (IF NOT EXISTS). Триггер таблицы,
+    // которой пока нет (не удалось создать book_copies), пропускается и ставится при следующем запуске
+    private static void ensureChangeLog(Connection conn, SqlDialect dialect) throws SQLException {
+        List<String> statements = statements(dialect.getChangeLogScript());
+        Set<String> existing = existingTriggers(conn, dialect);
+        List<String> missing = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (String sql : statements) {
+            Matcher trigger = CREATE_TRIGGER.matcher(sql);
+            if (trigger.matches() && !existing.contains(trigger.group(1).toLowerCase(Locale.ROOT))) {
+                if (tableExists(conn, trigger.group(2))) {
+                    missing.add(sql);
+                } else {
+                    skipped.add(sql);
+                }
+            }
+        }
+        if (missing.isEmpty() && tableExists(conn, ChangeLog.TABLE)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                if (!skipped.contains(sql) && (!CREATE_TRIGGER.matcher(sql).matches() || missing.contains(sql))) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    // Имена триггеров текущей схемы в нижнем регистре
+    private static Set<String> existingTriggers(Connection conn, SqlDialect dialect) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT trigger_name FROM information_schema.triggers WHERE trigger_schema = ?")) {
+            pstmt.setString(1, dialect.currentSchema(conn));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+
+    // Таблица создана при этом запуске и ещё не заполнена по существующим данным
+    public static boolean wasCreated(String table) {
+        return created.contains(table);
+    }
+
+    public static boolean tablesExist(Connection conn, String... tables) throws SQLException {
+        for (String table : tables) {
+            if (!tableExists(conn, table)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getTables(conn.getCatalog(), null, name, new String[]{"TABLE"})) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, name, false, true)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public static void runScript(Connection conn, String resource) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements(resource)) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    // Операторы разделяются точкой с запятой в конце строки; строки-комментарии пропускаются
+    private static List<String> statements(String resource) {
+        List<String> result = new ArrayList<>();
+        StringBuilder statement = new StringBuilder();
+        for (String line : readResource(resource).split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            statement.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = statement.toString().trim();
+                result.add(sql.substring(0, sql.length() - 1));
+                statement.setLength(0);
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Extension {
+        void apply() throws SQLException;
+    }
+
+    private static String readResource(String resource) {
+        try (InputStream in = SchemaBootstrap.class.getResourceAsStream("/" + resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Различия SQL между поддерживаемыми базами
+public enum SqlDialect {
+    // Integer.MIN_VALUE — построчная потоковая выдача Connector/J вместо чтения всего результата в память
+    MYSQL("db/changelog.sql", Integer.MIN_VALUE) {
+        @Override
+        public String upsert(String table, String keyColumn, String valueColumn) {
+            return "INSERT INTO " + table + " (" + keyColumn + ", " + valueColumn + ") VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " + valueColumn + " = VALUES(" + valueColumn + ")";
+        }
+    },
+    H2("db/changelog-h2.sql", 1000) {
+        @Override
+        public String upsert(String table, String keyColumn, String valueColumn) {
+            return "MERGE INTO " + table + " (" + keyColumn + ", " + valueColumn + ") KEY (" + keyColumn + ") VALUES (?, ?)";
+        }
+
+        @Override
+        public String currentSchema(Connection conn) throws SQLException {
+            return conn.getSchema();
+        }
+
+        // H2 не разбирает обратную косую черту в строковых литералах
+        @Override
+        public String likeEscape() {
+            return "'\\'";
+        }
+    };
+
+    private final String changeLogScript;
+    private final int streamingFetchSize;
+
+    SqlDialect(String changeLogScript, int streamingFetchSize) {
+        this.changeLogScript = changeLogScript;
+        this.streamingFetchSize = streamingFetchSize;
+    }
+
+    // Вставка или обновление строки по ключу; параметры — значение ключа и значение столбца
+    public abstract String upsert(String table, String keyColumn, String valueColumn);
+
+    // Прибавляет значения к счётчикам строки, создавая её при отсутствии; параметры — ключи, затем приращения.
+    // H2 в режиме MODE=MySQL понимает тот же синтаксис, что и MySQL
+    public String increment(String table, String[] keyColumns, String[] counterColumns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", keyColumns)).append(", ")
+                .append(String.join(", ", counterColumns)).append(") VALUES (")
+                .append("?, ".repeat(keyColumns.length + counterColumns.length - 1)).append("?) ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < counterColumns.length; i++) {
+            String column = counterColumns[i];
+            sql.append(i > 0 ? ", " : "").append(column).append(" = ").append(column).append(" + VALUES(").append(column).append(')');
+        }
+        return sql.toString();
+    }
+
+    // Таблица changelog и триггеры, которые её заполняют
+    public String getChangeLogScript() {
+        return changeLogScript;
+    }
+
+    // Значение trigger_schema / table_schema в information_schema: база MySQL — это каталог соединения
+    public String currentSchema(Connection conn) throws SQLException {
+        return conn.getCatalog();
+    }
+
+    // Литерал для LIKE ... ESCAPE: одна обратная косая черта. В MySQL она сама экранируется в литерале
+    public String likeEscape() {
+        return "'\\\\'";
+    }
+
+    // fetchSize для чтения больших результатов курсором
+    public int getStreamingFetchSize() {
+        return streamingFetchSize;
+    }
+
+    public static SqlDialect fromUrl(String url) {
+        if (url.startsWith("jdbc:mysql:")) return MYSQL;
+        if (url.startsWith("jdbc:h2:")) return H2;
+        throw new IllegalArgumentException("Unsupported JDBC URL: " + url);
+    }
+}
@@ -1,19 +1,25 @@
 package view;
 
 import controller.BookController;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 import model.Book;
+import model.QuerySpec;
 import java.math.BigDecimal;
-import java.sql.SQLException;
 import java.util.Optional;
 
 public class BookView {
+    private static final int SEARCH_LIMIT = 200;
+    private static final int SEARCH_DELAY_MS = 150;
+
     private final BookController bookController = new BookController();
     private final TableView<Book> table = new TableView<>();
     private final boolean readOnly;
@@ -23,6 +29,13 @@ public class BookView {
     private final TextField genreField = new TextField();
     private final TextField depositField = new TextField();
     private final TextField rentalField = new TextField();
+    private final ProgressIndicator loadingIndicator = new ProgressIndicator();
+    private final TextField authorFilter = new TextField();
+    private final TextField genreFilter = new TextField();
+    private final TextField searchField = new TextField();
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(SEARCH_DELAY_MS));
+    // Номер последнего запроса: ответы на устаревшие запросы отбрасываются
+    private int searchGeneration;
 
     public BookView() {
         this(false);
@@ -32,7 +45,9 @@ public class BookView {
         this.readOnly = readOnly;
         initializeTable();
         loadTableData();
+        TablePager.install(table, bookController, this::setLoading);
         loadInitialData();
+        bookController.buildSearchIndexAsync();
     }
 
     public VBox getView() {
@@ -76,7 +91,7 @@ public class BookView {
             buttonBox.setVisible(false);
         }
 
-        vbox.getChildren().addAll(table, form, buttonBox);
+        vbox.getChildren().addAll(createSearchBar(), createFilterBar(), new StackPane(table, loadingIndicator), form, buttonBox);
 
         table.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> {
@@ -88,24 +103,107 @@ public class BookView {
         return vbox;
     }
 
+    private HBox createSearchBar() {
+        searchField.setPromptText("Название, автор или жанр");
+        searchField.setPrefWidth(300);
+        searchDelay.setOnFinished(e -> search());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+
+        HBox searchBar = new HBox(10, new Label("Поиск:"), searchField);
+        searchBar.setPadding(new Insets(0, 0, 5, 0));
+        return searchBar;
+    }
+
+    // Пустая строка возвращает таблицу к страницам модели, иначе показываются результаты поиска
+    private void search() {
+        String text = searchField.getText();
+        int generation = ++searchGeneration;
+        if (text.isBlank()) {
+            loadTableData();
+            return;
+        }
+
+        bookController.searchBooksAsync(text, SEARCH_LIMIT).whenComplete((books, error) -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось выполнить поиск: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else {
+                table.setItems(FXCollections.observableArrayList(books));
+            }
+        });
+    }
+
+    private void refreshSearchResults() {
+        if (!searchField.getText().isBlank()) {
+            search();
+        }
+    }
+
+    private HBox createFilterBar() {
+        authorFilter.setPromptText("Автор");
+        genreFilter.setPromptText("Жанр");
+
+        Button applyButton = new Button("Найти");
+        Button resetButton = new Button("Сбросить");
+        applyButton.setOnAction(e -> applyFilters());
+        resetButton.setOnAction(e -> {
+            authorFilter.clear();
+            genreFilter.clear();
+            applyFilters();
+        });
+
+        HBox filterBar = new HBox(10, new Label("Фильтр:"), authorFilter, genreFilter, applyButton, resetButton);
+        filterBar.setPadding(new Insets(0, 0, 5, 0));
+        return filterBar;
+    }
+
+    // Фильтры выполняются в SQL; текущая сортировка таблицы сохраняется
+    private void applyFilters() {
+        // Фильтры применяются к страницам модели, а не к результатам поиска
+        searchField.clear();
+        QuerySpec spec = bookController.getModel().getQuery().withoutFilters();
+        if (!authorFilter.getText().isBlank()) {
+            spec = spec.where("author", QuerySpec.Operator.LIKE, authorFilter.getText().trim());
+        }
+        if (!genreFilter.getText().isBlank()) {
+            spec = spec.where("genre", QuerySpec.Operator.LIKE, genreFilter.getText().trim());
+        }
+
+        setLoading(true);
+        bookController.queryAsync(spec).whenComplete((result, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось применить фильтр: " + errorMessage(error), Alert.AlertType.ERROR);
+            }
+        });
+    }
+
     private void initializeTable() {
         TableColumn<Book, Integer> isbnCol = new TableColumn<>("ISBN");
         isbnCol.setCellValueFactory(new PropertyValueFactory<>("isbn"));
+        isbnCol.setUserData("isbn");
 
         TableColumn<Book, String> titleCol = new TableColumn<>("Название");
         titleCol.setCellValueFactory(new PropertyValueFactory<>("title"));
+        titleCol.setUserData("title");
 
         TableColumn<Book, String> authorCol = new TableColumn<>("Автор");
         authorCol.setCellValueFactory(new PropertyValueFactory<>("author"));
+        authorCol.setUserData("author");
 
         TableColumn<Book, String> genreCol = new TableColumn<>("Жанр");
         genreCol.setCellValueFactory(new PropertyValueFactory<>("genre"));
+        genreCol.setUserData("genre");
 
         TableColumn<Book, BigDecimal> depositCol = new TableColumn<>("Залог");
         depositCol.setCellValueFactory(new PropertyValueFactory<>("depositCost"));
+        depositCol.setUserData("deposit_cost");
 
         TableColumn<Book, BigDecimal> rentalCol = new TableColumn<>("Аренда/день");
         rentalCol.setCellValueFactory(new PropertyValueFactory<>("rentalCostPerDay"));
+        rentalCol.setUserData("rental_cost_per_day");
 
         table.getColumns().addAll(isbnCol, titleCol, authorCol, genreCol, depositCol, rentalCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
@@ -116,22 +214,39 @@ public class BookView {
     }
 
     private void loadInitialData() {
-        try {
-            bookController.getModel().refreshImmediately();
-        } catch (SQLException e) {
-            showAlert("Ошибка загрузки", "Не удалось загрузить книги: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        setLoading(true);
+        bookController.loadAsync().whenComplete((result, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка загрузки", "Не удалось загрузить книги: " + errorMessage(error), Alert.AlertType.ERROR);
+            }
+        });
+    }
+
+    // Индикатор поверх таблицы; сама таблица остаётся доступной во время загрузки
+    private void setLoading(boolean loading) {
+        loadingIndicator.setVisible(loading);
     }
 
     private void addBook() {
+        Book book;
         try {
-            Book book = createBookFromForm();
-            if (book != null && bookController.addBook(book)) {
-                clearForm();
-            }
+            book = createBookFromForm();
         } catch (Exception e) {
             showAlert("Ошибка ввода", "Некорректные данные: " + e.getMessage(), Alert.AlertType.ERROR);
+            return;
         }
+
+        setLoading(true);
+        bookController.addBookAsync(book).whenComplete((added, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось добавить книгу: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else if (added) {
+                clearForm();
+                refreshSearchResults();
+            }
+        });
     }
 
     private void deleteBook() {
@@ -148,9 +263,16 @@ public class BookView {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (bookController.deleteBook(selected.getIsbn())) {
-                clearForm();
-            }
+            setLoading(true);
+            bookController.deleteBookAsync(selected.getIsbn()).whenComplete((deleted, error) -> {
+                setLoading(false);
+                if (error != null) {
+                    showAlert("Ошибка", "Не удалось удалить книгу: " + errorMessage(error), Alert.AlertType.ERROR);
+                } else if (deleted) {
+                    clearForm();
+                    refreshSearchResults();
+                }
+            });
         }
     }
 
@@ -184,6 +306,11 @@ public class BookView {
         );
     }
 
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
     private void showAlert(String title, String message, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
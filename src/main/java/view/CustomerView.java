@@ -7,9 +7,9 @@ import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import model.Customer;
-import java.sql.SQLException;
 import java.util.Optional;
 
 public class CustomerView {
@@ -19,6 +19,7 @@ public class CustomerView {
     private final TextField nameField = new TextField();
     private final TextField addressField = new TextField();
     private final TextField phoneField = new TextField();
+    private final ProgressIndicator loadingIndicator = new ProgressIndicator();
 
     public VBox getView() {
         VBox vbox = new VBox(10);
@@ -26,6 +27,7 @@ public class CustomerView {
 
         initializeTable();
         loadTableData();
+        TablePager.install(table, customerController, this::setLoading);
         loadInitialData();
 
         VBox form = new VBox(5);
@@ -53,7 +55,7 @@ public class CustomerView {
         deleteButton.setOnAction(e -> deleteCustomer());
 
         buttonBox.getChildren().addAll(addButton, deleteButton);
-        vbox.getChildren().addAll(table, form, buttonBox);
+        vbox.getChildren().addAll(new StackPane(table, loadingIndicator), form, buttonBox);
 
         table.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> {
@@ -68,15 +70,19 @@ public class CustomerView {
     private void initializeTable() {
         TableColumn<Customer, Integer> idCol = new TableColumn<>("ID");
         idCol.setCellValueFactory(new PropertyValueFactory<>("customerId"));
+        idCol.setUserData("customer_id");
 
         TableColumn<Customer, String> nameCol = new TableColumn<>("ФИО");
         nameCol.setCellValueFactory(new PropertyValueFactory<>("fullName"));
+        nameCol.setUserData("full_name");
 
         TableColumn<Customer, String> addressCol = new TableColumn<>("Адрес");
         addressCol.setCellValueFactory(new PropertyValueFactory<>("address"));
+        addressCol.setUserData("address");
 
         TableColumn<Customer, String> phoneCol = new TableColumn<>("Телефон");
         phoneCol.setCellValueFactory(new PropertyValueFactory<>("phoneNumber"));
+        phoneCol.setUserData("phone_number");
 
         table.getColumns().addAll(idCol, nameCol, addressCol, phoneCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
@@ -87,23 +93,31 @@ public class CustomerView {
     }
 
     private void loadInitialData() {
-        try {
-            customerController.getModel().refreshImmediately();
-        } catch (SQLException e) {
-            showAlert("Ошибка загрузки", "Не удалось загрузить клиентов: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        setLoading(true);
+        customerController.loadAsync().whenComplete((result, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка загрузки", "Не удалось загрузить клиентов: " + errorMessage(error), Alert.AlertType.ERROR);
+            }
+        });
+    }
+
+    // Индикатор поверх таблицы; сама таблица остаётся доступной во время загрузки
+    private void setLoading(boolean loading) {
+        loadingIndicator.setVisible(loading);
     }
 
     private void addCustomer() {
-        try {
-            Customer customer = createCustomerFromForm();
-            int newId = customerController.addCustomer(customer);
-            if (newId != -1) {
+        Customer customer = createCustomerFromForm();
+        setLoading(true);
+        customerController.addCustomerAsync(customer).whenComplete((newId, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка ввода", "Некорректные данные: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else if (newId != null && newId != -1) {
                 clearForm();
             }
-        } catch (Exception e) {
-            showAlert("Ошибка ввода", "Некорректные данные: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        });
     }
 
     private void deleteCustomer() {
@@ -120,9 +134,15 @@ public class CustomerView {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (customerController.deleteCustomer(selected.getCustomerId())) {
-                clearForm();
-            }
+            setLoading(true);
+            customerController.deleteCustomerAsync(selected.getCustomerId()).whenComplete((deleted, error) -> {
+                setLoading(false);
+                if (error != null) {
+                    showAlert("Ошибка", "Не удалось удалить клиента: " + errorMessage(error), Alert.AlertType.ERROR);
+                } else if (deleted) {
+                    clearForm();
+                }
+            });
         }
     }
 
@@ -150,6 +170,11 @@ public class CustomerView {
         );
     }
 
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
     private void showAlert(String title, String message, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
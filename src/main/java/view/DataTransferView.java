@@ -0,0 +1,113 @@
+package view;
+
+import controller.DataTransferController;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Выгрузка и загрузка справочников в CSV; операции выполняются в фоне
+public class DataTransferView {
+    private final DataTransferController transferController = new DataTransferController();
+    private final Label statusLabel = new Label();
+    private final ProgressIndicator progressIndicator = new ProgressIndicator();
+    private final List<Button> buttons = new ArrayList<>();
+
+    public VBox getView() {
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+
+        grid.add(new Label("Книги"), 0, 0);
+        grid.add(button("Экспорт", () -> export("books.csv", file -> transferController.exportBooks(file.toPath()))), 1, 0);
+        grid.add(button("Импорт", () -> importFile(file -> transferController.importBooks(file.toPath()))), 2, 0);
+
+        grid.add(new Label("Клиенты"), 0, 1);
+        grid.add(button("Экспорт", () -> export("customers.csv", file -> transferController.exportCustomers(file.toPath()))), 1, 1);
+        grid.add(button("Импорт", () -> importFile(file -> transferController.importCustomers(file.toPath()))), 2, 1);
+
+        grid.add(new Label("Заказы"), 0, 2);
+        grid.add(button("Экспорт", () -> export("orders.csv", file -> transferController.exportOrders(file.toPath()))), 1, 2);
+        grid.add(button("Импорт", () -> importFile(file -> transferController.importOrders(file.toPath()))), 2, 2);
+
+        progressIndicator.setVisible(false);
+        progressIndicator.setMaxSize(30, 30);
+
+        VBox vbox = new VBox(10, new Label("Файлы CSV в кодировке UTF-8, первая строка — имена столбцов"),
+                grid, progressIndicator, statusLabel);
+        vbox.setPadding(new Insets(10));
+        return vbox;
+    }
+
+    private Button button(String text, Runnable action) {
+        Button button = new Button(text);
+        button.setOnAction(e -> action.run());
+        buttons.add(button);
+        return button;
+    }
+
+    private void export(String defaultName, FileTransfer transfer) {
+        FileChooser chooser = csvChooser();
+        chooser.setInitialFileName(defaultName);
+        File file = chooser.showSaveDialog(statusLabel.getScene().getWindow());
+        if (file != null) {
+            run(file, transfer, "Выгружено записей: ");
+        }
+    }
+
+    private void importFile(FileTransfer transfer) {
+        File file = csvChooser().showOpenDialog(statusLabel.getScene().getWindow());
+        if (file != null) {
+            run(file, transfer, "Загружено записей: ");
+        }
+    }
+
+    private void run(File file, FileTransfer transfer, String doneMessage) {
+        setBusy(true);
+        statusLabel.setText(file.getName() + "...");
+        transferController.runAsync(() -> transfer.run(file)).whenComplete((count, error) -> {
+            setBusy(false);
+            if (error != null) {
+                statusLabel.setText("");
+                showAlert("Ошибка", file.getName() + ": " + errorMessage(error), Alert.AlertType.ERROR);
+            } else {
+                statusLabel.setText(file.getName() + ". " + doneMessage + count);
+            }
+        });
+    }
+
+    private void setBusy(boolean busy) {
+        progressIndicator.setVisible(busy);
+        buttons.forEach(button -> button.setDisable(busy));
+    }
+
+    private static FileChooser csvChooser() {
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        return chooser;
+    }
+
+    @FunctionalInterface
+    private interface FileTransfer {
+        long run(File file) throws IOException, SQLException;
+    }
+
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
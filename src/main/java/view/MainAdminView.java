@@ -63,12 +63,23 @@ public class MainAdminView {
         orderView = new OrderView();
         ordersTab.setContent(orderView.getView());
 
-        tabPane.getTabs().addAll(booksTab, customersTab, ordersTab);
+        Tab transferTab = new Tab("Импорт/экспорт");
+        transferTab.setClosable(false);
+        transferTab.setContent(new DataTransferView().getView());
+
+        Tab reportsTab = new Tab("Отчёты");
+        reportsTab.setClosable(false);
+        ReportView reportView = new ReportView();
+        reportsTab.setContent(reportView.getView());
+
+        tabPane.getTabs().addAll(booksTab, customersTab, ordersTab, transferTab, reportsTab);
 
         // Добавляем обработчик переключения вкладок
         tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
             if (newTab == ordersTab) {
                 orderView.refreshCombos();
+            } else if (newTab == reportsTab) {
+                reportView.refresh();
             }
         });
 
@@ -53,9 +53,11 @@ public class MainUserView {
         booksTab.setClosable(false);
         booksTab.setContent(new BookView(true).getView());
 
+        // Только заказы текущего клиента; пользователь без привязки к клиенту не видит ничего
+        Integer customerId = SessionManager.getCurrentUser().getCustomerId();
         Tab ordersTab = new Tab("Мои заказы");
         ordersTab.setClosable(false);
-        ordersTab.setContent(new OrderView(true).getView());
+        ordersTab.setContent(new OrderView(true, customerId != null ? customerId : -1).getView());
 
         tabPane.getTabs().addAll(booksTab, ordersTab);
         borderPane.setCenter(tabPane);
@@ -13,6 +13,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -20,6 +21,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import model.*;
 import util.DatabaseConnection;
@@ -29,33 +31,58 @@ import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
 
 public class OrderView {
+    private static final int PICKER_LIMIT = 50;
+
     private final OrderController orderController = new OrderController();
     private final CustomerController customerController = new CustomerController();
     private final BookController bookController = new BookController();
     private final TableView<Order> table = new TableView<>();
     private final boolean readOnly;
+    // Клиент, чьи заказы показывает представление; null — все заказы
+    private final Integer customerScope;
     private final TextField idField = new TextField();
-    private final ComboBox<Customer> customerCombo = new ComboBox<>();
-    private final ComboBox<Book> bookCombo = new ComboBox<>();
+    // В списках клиентов и книг — только результаты поиска, а не весь справочник
+    private final SearchPicker<Customer> customerPicker = new SearchPicker<>(
+            "ФИО или телефон", PICKER_LIMIT, customerController::searchCustomersAsync,
+            error -> showAlert("Ошибка", "Не удалось выполнить поиск клиентов: " + errorMessage(error), Alert.AlertType.ERROR));
+    private final SearchPicker<Book> bookPicker = new SearchPicker<>(
+            "Поиск книги", PICKER_LIMIT, bookController::searchBooksAsync,
+            error -> showAlert("Ошибка", "Не удалось выполнить поиск книг: " + errorMessage(error), Alert.AlertType.ERROR));
     private final DatePicker issueDatePicker = new DatePicker();
     private final DatePicker returnDatePicker = new DatePicker();
     private final TextField totalField = new TextField();
     private final ComboBox<Discount> discountCombo = new ComboBox<>();
     private final ComboBox<Penalty> penaltyCombo = new ComboBox<>();
+    private final ProgressIndicator loadingIndicator = new ProgressIndicator();
+    private final TextField customerIdFilter = new TextField();
+    private final DatePicker issueFromFilter = new DatePicker();
+    private final DatePicker issueToFilter = new DatePicker();
 
     public OrderView() {
         this(false);
     }
 
     public OrderView(boolean readOnly) {
+        this(readOnly, null);
+    }
+
+    public OrderView(boolean readOnly, Integer customerScope) {
         this.readOnly = readOnly;
+        this.customerScope = customerScope;
         initializeTable();
         loadTableData();
-        loadCombos();
+        TablePager.install(table, orderController, this::setLoading);
+        // Справочники нужны только форме редактирования
+        if (!readOnly) {
+            initializeSearch();
+            registerRefreshListeners();
+        }
         loadInitialData();
-        registerRefreshListeners();
     }
 
     public VBox getView() {
@@ -75,10 +102,10 @@ public class OrderView {
         form.add(idField, 1, 0);
 
         form.add(new Label("Клиент:"), 0, 1);
-        form.add(customerCombo, 1, 1);
+        form.add(customerPicker.getNode(), 1, 1);
 
         form.add(new Label("Книга:"), 0, 2);
-        form.add(bookCombo, 1, 2);
+        form.add(bookPicker.getNode(), 1, 2);
 
         form.add(new Label("Дата выдачи:"), 0, 3);
         form.add(issueDatePicker, 1, 3);
@@ -115,7 +142,7 @@ public class OrderView {
             buttonBox.setVisible(false);
         }
 
-        vbox.getChildren().addAll(table, form, buttonBox);
+        vbox.getChildren().addAll(createFilterBar(), new StackPane(table, loadingIndicator), form, buttonBox);
 
         table.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> {
@@ -128,34 +155,48 @@ public class OrderView {
     }
 
     private void registerRefreshListeners() {
-        bookController.addRefreshListener(this::refreshBookCombo);
-        customerController.addRefreshListener(this::refreshCustomerCombo);
+        bookController.addChangeListener(event -> applyChanges(bookPicker, event, Book::getIsbn));
+        customerController.addChangeListener(event -> applyChanges(customerPicker, event, Customer::getCustomerId));
     }
 
-    private void refreshBookCombo() {
-        try {
-            List<Book> books = bookController.getModel().getAll();
-            Platform.runLater(() -> {
-                Book selected = bookCombo.getValue();
-                bookCombo.setItems(FXCollections.observableArrayList(books));
-                bookCombo.setValue(selected);
-            });
-        } catch (SQLException e) {
-            showAlert("Ошибка", "Не удалось обновить список книг", Alert.AlertType.ERROR);
+    // Одно обновление на пачку изменений: удалённые записи убираются из списка,
+    // а поиск повторяется только если появились новые или изменённые строки
+    private <T> void applyChanges(SearchPicker<T> picker, ChangeEvent event, ToIntFunction<T> key) {
+        Set<Integer> deleted = event.getIds(ChangeEvent.Type.DELETE);
+        if (!deleted.isEmpty()) {
+            picker.removeIf(item -> deleted.contains(key.applyAsInt(item)));
+        }
+        if (event.isReload() || event.hasUpserts()) {
+            picker.refresh();
         }
     }
 
-    private void refreshCustomerCombo() {
-        try {
-            List<Customer> customers = customerController.getModel().getAll();
-            Platform.runLater(() -> {
-                Customer selected = customerCombo.getValue();
-                customerCombo.setItems(FXCollections.observableArrayList(customers));
-                customerCombo.setValue(selected);
-            });
-        } catch (SQLException e) {
-            showAlert("Ошибка", "Не удалось обновить список клиентов", Alert.AlertType.ERROR);
+    // Индексы поиска строятся в фоне, чтобы первый запрос не ждал прохода по таблицам
+    private void initializeSearch() {
+        bookController.buildSearchIndexAsync();
+        customerController.buildSearchIndexAsync();
+        bookPicker.setCellText(this::bookWithAvailability);
+    }
+
+    // Доступность — из счётчиков в памяти, без запроса на каждую строку списка
+    private String bookWithAvailability(Book book) {
+        BookAvailability.Status status = BookAvailability.get(book.getIsbn());
+        if (status == null) {
+            return book.toString();
+        }
+        if (status.isAvailable()) {
+            return book + " — свободно " + status.getFree() + " из " + status.getCopies()
+                    + (status.getBusyFrom() != null ? " до " + status.getBusyFrom() : "");
         }
+        return book + (status.getNextFreeDate() != null ? " — выдана до " + status.getNextFreeDate() : " — выдана");
+    }
+
+    private void refreshBookCombo() {
+        bookPicker.refresh();
+    }
+
+    private void refreshCustomerCombo() {
+        customerPicker.refresh();
     }
 
     public void refreshCombos() {
@@ -175,21 +216,80 @@ public class OrderView {
         });
     }
 
+    private HBox createFilterBar() {
+        customerIdFilter.setPromptText("ID клиента");
+        issueFromFilter.setPromptText("Выдан с");
+        issueToFilter.setPromptText("Выдан по");
+
+        Button applyButton = new Button("Найти");
+        Button resetButton = new Button("Сбросить");
+        applyButton.setOnAction(e -> applyFilters());
+        resetButton.setOnAction(e -> {
+            customerIdFilter.clear();
+            issueFromFilter.setValue(null);
+            issueToFilter.setValue(null);
+            applyFilters();
+        });
+
+        HBox filterBar = new HBox(10, new Label("Фильтр:"));
+        if (customerScope == null) {
+            filterBar.getChildren().add(customerIdFilter);
+        }
+        filterBar.getChildren().addAll(issueFromFilter, issueToFilter, applyButton, resetButton);
+        filterBar.setPadding(new Insets(0, 0, 5, 0));
+        return filterBar;
+    }
+
+    // Фильтры выполняются в SQL; текущая сортировка таблицы сохраняется
+    private void applyFilters() {
+        QuerySpec spec = orderController.getModel().getQuery().withoutFilters();
+        if (customerScope != null) {
+            spec = spec.where("customer_id", QuerySpec.Operator.EQ, customerScope);
+        } else if (!customerIdFilter.getText().isBlank()) {
+            try {
+                spec = spec.where("customer_id", QuerySpec.Operator.EQ,
+                        Integer.parseInt(customerIdFilter.getText().trim()));
+            } catch (NumberFormatException e) {
+                showAlert("Ошибка ввода", "ID клиента должен быть числом", Alert.AlertType.WARNING);
+                return;
+            }
+        }
+        if (issueFromFilter.getValue() != null) {
+            spec = spec.where("issue_date", QuerySpec.Operator.GE, Date.valueOf(issueFromFilter.getValue()));
+        }
+        if (issueToFilter.getValue() != null) {
+            spec = spec.where("issue_date", QuerySpec.Operator.LE, Date.valueOf(issueToFilter.getValue()));
+        }
+
+        setLoading(true);
+        orderController.queryAsync(spec).whenComplete((result, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось применить фильтр: " + errorMessage(error), Alert.AlertType.ERROR);
+            }
+        });
+    }
+
     private void initializeTable() {
         TableColumn<Order, Integer> idCol = new TableColumn<>("ID");
         idCol.setCellValueFactory(new PropertyValueFactory<>("orderId"));
+        idCol.setUserData("order_id");
 
         TableColumn<Order, Integer> customerIdCol = new TableColumn<>("ID клиента");
         customerIdCol.setCellValueFactory(new PropertyValueFactory<>("customerId"));
+        customerIdCol.setUserData("customer_id");
 
         TableColumn<Order, Integer> isbnCol = new TableColumn<>("ISBN");
         isbnCol.setCellValueFactory(new PropertyValueFactory<>("isbn"));
+        isbnCol.setUserData("isbn");
 
         TableColumn<Order, Date> issueCol = new TableColumn<>("Дата выдачи");
         issueCol.setCellValueFactory(cellData -> cellData.getValue().issueDateProperty());
+        issueCol.setUserData("issue_date");
 
         TableColumn<Order, Date> returnCol = new TableColumn<>("Дата возврата");
         returnCol.setCellValueFactory(cellData -> cellData.getValue().returnDateProperty());
+        returnCol.setUserData("return_date");
 
         TableColumn<Order, BigDecimal> rentalCostCol = new TableColumn<>("Стоимость аренды");
         rentalCostCol.setCellValueFactory(cellData -> cellData.getValue().rentalCostProperty());
@@ -212,6 +312,11 @@ public class OrderView {
         totalCol.setCellValueFactory(cellData -> cellData.getValue().totalAmountProperty());
         totalCol.setCellFactory(col -> new FormattedTableCell());
 
+        // Вычисляемые столбцы в базе отсутствуют, поэтому сортировать по ним нельзя
+        for (TableColumn<Order, ?> computed : List.of(rentalCostCol, depositCol, discountsCol, penaltiesCol, totalCol)) {
+            computed.setSortable(false);
+        }
+
         table.getColumns().addAll(idCol, customerIdCol, isbnCol, issueCol, returnCol,
                 rentalCostCol, depositCol, discountsCol, penaltiesCol, totalCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
@@ -222,11 +327,24 @@ public class OrderView {
     }
 
     private void loadInitialData() {
-        try {
-            orderController.getModel().refreshImmediately();
-        } catch (SQLException e) {
-            showAlert("Ошибка загрузки", "Не удалось загрузить заказы: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        setLoading(true);
+        CompletableFuture<Void> load = customerScope != null
+                ? orderController.loadOrdersForCustomerAsync(customerScope)
+                : orderController.loadAsync();
+        load.whenComplete((result, error) -> {
+            setLoading(false);
+            if (error != null) {
+                showAlert("Ошибка загрузки", "Не удалось загрузить заказы: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else if (!readOnly) {
+                // Кэши скидок и штрафов заполняются при загрузке заказов
+                refreshDiscountsAndPenalties();
+            }
+        });
+    }
+
+    // Индикатор поверх таблицы; сама таблица остаётся доступной во время загрузки
+    private void setLoading(boolean loading) {
+        loadingIndicator.setVisible(loading);
     }
 
     private static class FormattedTableCell extends TableCell<Order, BigDecimal> {
@@ -243,29 +361,9 @@ public class OrderView {
         }
     }
 
-    private void loadCombos() {
-        try {
-            List<Customer> customers = customerController.getModel().getAll();
-            customerCombo.setItems(FXCollections.observableArrayList(customers));
-
-            List<Book> books = bookController.getModel().getAll();
-            bookCombo.setItems(FXCollections.observableArrayList(books));
-
-            discountCombo.setItems(FXCollections.observableArrayList(
-                    DataModel.getDiscountCache().values()
-            ));
-
-            penaltyCombo.setItems(FXCollections.observableArrayList(
-                    DataModel.getPenaltyCache().values()
-            ));
-        } catch (SQLException e) {
-            showAlert("Ошибка БД", "Не удалось загрузить данные: " + e.getMessage(), Alert.AlertType.ERROR);
-        }
-    }
-
     private void createOrder() {
-        Customer customer = customerCombo.getValue();
-        Book book = bookCombo.getValue();
+        Customer customer = customerPicker.getValue();
+        Book book = bookPicker.getValue();
         LocalDate issueDate = issueDatePicker.getValue();
         LocalDate returnDate = returnDatePicker.getValue();
 
@@ -279,19 +377,27 @@ public class OrderView {
             return;
         }
 
-        int newId = orderController.createOrder(
+        // Выбранные в форме скидка и штраф записываются вместе с заказом
+        Discount discount = discountCombo.getValue();
+        Penalty penalty = penaltyCombo.getValue();
+
+        setLoading(true);
+        orderController.createOrderAsync(
                 customer.getCustomerId(),
                 book.getIsbn(),
                 Date.valueOf(issueDate),
-                Date.valueOf(returnDate)
-        );
-
-        if (newId != -1) {
-            clearForm();
-            showAlert("Успех", "Заказ успешно создан", Alert.AlertType.INFORMATION);
-        } else {
-            showAlert("Ошибка", "Не удалось создать заказ", Alert.AlertType.ERROR);
-        }
+                Date.valueOf(returnDate),
+                discount != null ? List.of(discount) : List.of(),
+                penalty != null ? List.of(penalty) : List.of()
+        ).whenComplete((order, error) -> {
+            setLoading(false);
+            if (error == null) {
+                clearForm();
+                showAlert("Успех", "Заказ успешно создан", Alert.AlertType.INFORMATION);
+            } else {
+                showAlert("Ошибка", "Не удалось создать заказ: " + errorMessage(error), Alert.AlertType.ERROR);
+            }
+        });
     }
 
     private void addDiscount() {
@@ -303,11 +409,13 @@ public class OrderView {
             return;
         }
 
-        if (orderController.addDiscountToOrder(selected.getOrderId(), discount)) {
-            showAlert("Успех", "Скидка успешно добавлена", Alert.AlertType.INFORMATION);
-        } else {
-            showAlert("Ошибка", "Не удалось добавить скидку", Alert.AlertType.ERROR);
-        }
+        orderController.addDiscountToOrderAsync(selected.getOrderId(), discount).whenComplete((added, error) -> {
+            if (error == null && added) {
+                showAlert("Успех", "Скидка успешно добавлена", Alert.AlertType.INFORMATION);
+            } else {
+                showAlert("Ошибка", "Не удалось добавить скидку", Alert.AlertType.ERROR);
+            }
+        });
     }
 
     private void addPenalty() {
@@ -319,11 +427,13 @@ public class OrderView {
             return;
         }
 
-        if (orderController.addPenaltyToOrder(selected.getOrderId(), penalty)) {
-            showAlert("Успех", "Штраф успешно добавлен", Alert.AlertType.INFORMATION);
-        } else {
-            showAlert("Ошибка", "Не удалось добавить штраф", Alert.AlertType.ERROR);
-        }
+        orderController.addPenaltyToOrderAsync(selected.getOrderId(), penalty).whenComplete((added, error) -> {
+            if (error == null && added) {
+                showAlert("Успех", "Штраф успешно добавлен", Alert.AlertType.INFORMATION);
+            } else {
+                showAlert("Ошибка", "Не удалось добавить штраф", Alert.AlertType.ERROR);
+            }
+        });
     }
 
     private void calculateTotal() {
@@ -351,19 +461,23 @@ public class OrderView {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (orderController.deleteOrder(selected.getOrderId())) {
-                clearForm();
-                showAlert("Успех", "Заказ успешно удален", Alert.AlertType.INFORMATION);
-            } else {
-                showAlert("Ошибка", "Не удалось удалить заказ", Alert.AlertType.ERROR);
-            }
+            setLoading(true);
+            orderController.deleteOrderAsync(selected.getOrderId()).whenComplete((deleted, error) -> {
+                setLoading(false);
+                if (error == null && deleted) {
+                    clearForm();
+                    showAlert("Успех", "Заказ успешно удален", Alert.AlertType.INFORMATION);
+                } else {
+                    showAlert("Ошибка", "Не удалось удалить заказ", Alert.AlertType.ERROR);
+                }
+            });
         }
     }
 
     private void clearForm() {
         idField.clear();
-        customerCombo.getSelectionModel().clearSelection();
-        bookCombo.getSelectionModel().clearSelection();
+        customerPicker.clear();
+        bookPicker.clear();
         issueDatePicker.setValue(null);
         returnDatePicker.setValue(null);
         totalField.clear();
@@ -375,15 +489,13 @@ public class OrderView {
     private void fillFormWithOrder(Order order) {
         idField.setText(String.valueOf(order.getOrderId()));
 
-        customerCombo.setValue(customerCombo.getItems().stream()
-                .filter(c -> c.getCustomerId() == order.getCustomerId())
-                .findFirst()
-                .orElse(null));
-
-        bookCombo.setValue(bookCombo.getItems().stream()
-                .filter(b -> b.getIsbn() == order.getIsbn())
-                .findFirst()
-                .orElse(null));
+        // Книга заказа уже подгружена вместе с заказами, клиента читаем по ключу
+        bookPicker.setValue(order.getBook() != null ? order.getBook() : DataModel.getBookFromCache(order.getIsbn()));
+        customerController.getCustomerAsync(order.getCustomerId()).whenComplete((customer, error) -> {
+            if (error == null && order == table.getSelectionModel().getSelectedItem()) {
+                customerPicker.setValue(customer);
+            }
+        });
 
         issueDatePicker.setValue(order.getIssueDate().toLocalDate());
         if (order.getReturnDate() != null) {
@@ -395,6 +507,11 @@ public class OrderView {
         }
     }
 
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
     private void showAlert(String title, String message, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -0,0 +1,130 @@
+package view;
+
+import controller.ReportController;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import model.RentalRollups;
+import model.RentalStat;
+import model.RentalSummary;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Выручка, залоги и просрочки из сводных таблиц; данные читаются по кнопке и при открытии вкладки
+public class ReportView {
+    private static final int STATS_LIMIT = 100;
+
+    private final ReportController reportController = new ReportController();
+    private final Label ordersLabel = new Label();
+    private final Label revenueLabel = new Label();
+    private final Label activeLabel = new Label();
+    private final Label overdueLabel = new Label();
+    private final ComboBox<RentalRollups.Dimension> dimensionCombo = new ComboBox<>(
+            FXCollections.observableArrayList(RentalRollups.Dimension.DAY, RentalRollups.Dimension.GENRE,
+                    RentalRollups.Dimension.CUSTOMER));
+    private final TableView<RentalStat> table = new TableView<>();
+    private final TableColumn<RentalStat, String> keyCol = new TableColumn<>();
+
+    public VBox getView() {
+        GridPane summary = new GridPane();
+        summary.setHgap(10);
+        summary.setVgap(5);
+        summary.addRow(0, new Label("Заказов:"), ordersLabel);
+        summary.addRow(1, new Label("Выручка:"), revenueLabel);
+        summary.addRow(2, new Label("Выдано на сегодня:"), activeLabel);
+        summary.addRow(3, new Label("Просрочено на сегодня:"), overdueLabel);
+
+        keyCol.setCellValueFactory(new PropertyValueFactory<>("key"));
+        keyCol.setPrefWidth(250);
+
+        TableColumn<RentalStat, Long> countCol = new TableColumn<>("Заказов");
+        countCol.setCellValueFactory(new PropertyValueFactory<>("orderCount"));
+
+        TableColumn<RentalStat, BigDecimal> revenueCol = new TableColumn<>("Выручка");
+        revenueCol.setCellValueFactory(new PropertyValueFactory<>("revenue"));
+        revenueCol.setPrefWidth(150);
+
+        TableColumn<RentalStat, BigDecimal> depositsCol = new TableColumn<>("Залоги");
+        depositsCol.setCellValueFactory(new PropertyValueFactory<>("deposits"));
+        depositsCol.setPrefWidth(150);
+
+        table.getColumns().addAll(keyCol, countCol, revenueCol, depositsCol);
+
+        dimensionCombo.setValue(RentalRollups.Dimension.DAY);
+        dimensionCombo.setOnAction(e -> loadStats());
+
+        Button refreshButton = new Button("Обновить");
+        refreshButton.setOnAction(e -> refresh());
+
+        Button rebuildButton = new Button("Пересчитать сводку");
+        rebuildButton.setOnAction(e -> {
+            rebuildButton.setDisable(true);
+            reportController.rebuildAsync().whenComplete((result, error) -> {
+                rebuildButton.setDisable(false);
+                if (error != null) {
+                    showAlert("Ошибка", "Не удалось пересчитать сводку: " + errorMessage(error), Alert.AlertType.ERROR);
+                } else {
+                    refresh();
+                }
+            });
+        });
+
+        HBox controls = new HBox(10, new Label("Разрез:"), dimensionCombo, refreshButton, rebuildButton);
+
+        VBox vbox = new VBox(10, summary, controls, table);
+        vbox.setPadding(new Insets(10));
+        return vbox;
+    }
+
+    public void refresh() {
+        reportController.getSummaryAsync(LocalDate.now()).whenComplete((summary, error) -> {
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось загрузить сводку: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else {
+                showSummary(summary);
+            }
+        });
+        loadStats();
+    }
+
+    private void showSummary(RentalSummary summary) {
+        ordersLabel.setText(String.valueOf(summary.getOrderCount()));
+        revenueLabel.setText(summary.getRevenue().toPlainString());
+        activeLabel.setText(summary.getActiveCount() + " (залоги " + summary.getActiveDeposits().toPlainString() + ")");
+        overdueLabel.setText(summary.getOverdueCount() + " (залоги " + summary.getOverdueDeposits().toPlainString() + ")");
+    }
+
+    private void loadStats() {
+        RentalRollups.Dimension dimension = dimensionCombo.getValue();
+        keyCol.setText(switch (dimension) {
+            case DAY -> "Дата выдачи";
+            case GENRE -> "Жанр";
+            case CUSTOMER -> "ID клиента";
+            case TOTAL -> "";
+        });
+        reportController.getStatsAsync(dimension, STATS_LIMIT).whenComplete((stats, error) -> {
+            if (error != null) {
+                showAlert("Ошибка", "Не удалось загрузить отчёт: " + errorMessage(error), Alert.AlertType.ERROR);
+            } else if (dimension == dimensionCombo.getValue()) {
+                table.setItems(FXCollections.observableArrayList(stats));
+            }
+        });
+    }
+
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,110 @@
+package view;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.util.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Поле поиска и комбобокс с несколькими лучшими совпадениями вместо полного справочника.
+// Запрос отправляется после паузы в наборе; ответы на устаревшие запросы отбрасываются.
+public class SearchPicker<T> {
+    private static final int SEARCH_DELAY_MS = 150;
+
+    private final TextField searchField = new TextField();
+    private final ComboBox<T> combo = new ComboBox<>();
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(SEARCH_DELAY_MS));
+    private final BiFunction<String, Integer, CompletableFuture<List<T>>> searcher;
+    private final int limit;
+    private final Consumer<Throwable> errorHandler;
+    private int generation;
+
+    public SearchPicker(String prompt, int limit,
+                        BiFunction<String, Integer, CompletableFuture<List<T>>> searcher,
+                        Consumer<Throwable> errorHandler) {
+        this.searcher = searcher;
+        this.limit = limit;
+        this.errorHandler = errorHandler;
+        searchField.setPromptText(prompt);
+        searchDelay.setOnFinished(e -> search(true));
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+    }
+
+    // Текст элемента списка; без него используется toString()
+    public void setCellText(Function<T, String> text) {
+        combo.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : text.apply(item));
+            }
+        });
+    }
+
+    public HBox getNode() {
+        return new HBox(5, searchField, combo);
+    }
+
+    public T getValue() {
+        return combo.getValue();
+    }
+
+    // Значение, которого нет среди результатов поиска, добавляется в список
+    public void setValue(T value) {
+        if (value != null && !combo.getItems().contains(value)) {
+            combo.getItems().add(value);
+        }
+        combo.setValue(value);
+    }
+
+    public void clear() {
+        combo.getSelectionModel().clearSelection();
+        searchField.clear();
+    }
+
+    // Убирает из результатов удалённые записи без повторного поиска
+    public void removeIf(Predicate<T> filter) {
+        T selected = combo.getValue();
+        if (selected != null && filter.test(selected)) {
+            combo.setValue(null);
+        }
+        combo.getItems().removeIf(filter);
+    }
+
+    // Повторяет текущий поиск, например после изменения справочника
+    public void refresh() {
+        search(false);
+    }
+
+    private void search(boolean showPopup) {
+        String text = searchField.getText();
+        int current = ++generation;
+        if (text.isBlank()) {
+            return;
+        }
+
+        searcher.apply(text, limit).whenComplete((items, error) -> {
+            if (current != generation) {
+                return;
+            }
+            if (error != null) {
+                errorHandler.accept(error);
+                return;
+            }
+            T selected = combo.getValue();
+            combo.setItems(FXCollections.observableArrayList(items));
+            combo.setValue(selected);
+            if (showPopup && !items.isEmpty()) {
+                combo.show();
+            }
+        });
+    }
+}
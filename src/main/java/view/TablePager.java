@@ -0,0 +1,133 @@
+package view;
+
+import controller.BaseController;
+import javafx.application.Platform;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import model.QuerySpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// Подгружает страницы DataModel по мере прокрутки таблицы и передаёт сортировку по столбцам в SQL.
+// Сортируемые столбцы помечаются именем столбца базы через setUserData.
+public class TablePager<T> {
+    public static final int PAGE_SIZE = 200;
+    public static final int MAX_PAGES = 5;
+    private static final double EDGE_THRESHOLD = 0.1;
+
+    private final TableView<T> table;
+    private final BaseController<T> controller;
+    private final Consumer<Boolean> loadingHook;
+    private boolean loading;
+
+    private TablePager(TableView<T> table, BaseController<T> controller, Consumer<Boolean> loadingHook) {
+        this.table = table;
+        this.controller = controller;
+        this.loadingHook = loadingHook;
+    }
+
+    // Включает страничный режим модели, слушает вертикальную прокрутку и сортировку таблицы
+    public static <T> void install(TableView<T> table, BaseController<T> controller, Consumer<Boolean> loadingHook) {
+        controller.getModel().enablePaging(PAGE_SIZE, MAX_PAGES);
+        TablePager<T> pager = new TablePager<>(table, controller, loadingHook);
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            if (newSkin != null) {
+                Platform.runLater(pager::attachToScrollBar);
+            }
+        });
+        table.setSortPolicy(t -> {
+            // Результаты поиска не связаны с окном модели — их сортируем в памяти
+            if (!pager.showsModelData()) {
+                return TableView.DEFAULT_SORT_POLICY.call(t);
+            }
+            pager.applySort();
+            return true;
+        });
+    }
+
+    // Порядок строк задаёт запрос к базе, а не сортировка загруженного окна
+    private void applySort() {
+        QuerySpec current = controller.getModel().getQuery();
+        QuerySpec spec = current.withoutSort();
+        for (TableColumn<T, ?> column : table.getSortOrder()) {
+            if (column.getUserData() instanceof String name) {
+                spec = spec.orderBy(name, column.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+        }
+        if (describeSort(spec).equals(describeSort(current))) {
+            return;
+        }
+
+        loadingHook.accept(true);
+        controller.queryAsync(spec).whenComplete((result, error) -> loadingHook.accept(false));
+    }
+
+    private static List<String> describeSort(QuerySpec spec) {
+        List<String> keys = new ArrayList<>();
+        for (QuerySpec.SortKey sortKey : spec.getSortKeys()) {
+            keys.add(sortKey.getColumn() + (sortKey.isAscending() ? " ASC" : " DESC"));
+        }
+        return keys;
+    }
+
+    private void attachToScrollBar() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> onScroll(bar, newValue.doubleValue()));
+            }
+        }
+    }
+
+    private boolean showsModelData() {
+        return table.getItems() == controller.getModel().getObservableData();
+    }
+
+    private void onScroll(ScrollBar bar, double value) {
+        if (loading || !showsModelData()) {
+            return;
+        }
+        double range = bar.getMax() - bar.getMin();
+        if (range <= 0) {
+            return;
+        }
+        double position = (value - bar.getMin()) / range;
+
+        if (position >= 1 - EDGE_THRESHOLD && controller.getModel().hasMoreAfter()) {
+            load(controller.loadNextPageAsync());
+        } else if (position <= EDGE_THRESHOLD && controller.getModel().hasMoreBefore()) {
+            load(controller.loadPreviousPageAsync());
+        }
+    }
+
+    // После вытеснения строк возвращаем к первой видимой строке, чтобы окно не «прыгало»
+    private void load(CompletableFuture<Boolean> pageLoad) {
+        loading = true;
+        T anchor = firstVisibleItem();
+        pageLoad.whenComplete((loaded, error) -> {
+            loading = false;
+            if (error == null && loaded && anchor != null) {
+                int index = table.getItems().indexOf(anchor);
+                if (index >= 0) {
+                    table.scrollTo(index);
+                }
+            }
+        });
+    }
+
+    private T firstVisibleItem() {
+        if (table.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            IndexedCell<?> cell = flow.getFirstVisibleCell();
+            if (cell != null && cell.getIndex() >= 0 && cell.getIndex() < table.getItems().size()) {
+                return table.getItems().get(cell.getIndex());
+            }
+        }
+        return null;
+    }
+}
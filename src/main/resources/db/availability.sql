@@ -0,0 +1,7 @@
+-- Учёт экземпляров (MySQL и H2) для model.BookAvailability. Книга без строки здесь — один экземпляр.
+
+CREATE TABLE IF NOT EXISTS book_copies (
+    isbn   INT NOT NULL PRIMARY KEY,
+    copies INT NOT NULL,
+    CONSTRAINT fk_book_copies_book FOREIGN KEY (isbn) REFERENCES books (isbn) ON DELETE CASCADE
+);
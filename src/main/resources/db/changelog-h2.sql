@@ -0,0 +1,36 @@
+-- Журнал изменений для встраиваемой H2: те же записи, что и db/changelog.sql для MySQL,
+-- пишет Java-триггер util.H2ChangeLogTrigger. Очистки по расписанию нет — база локальная.
+
+CREATE TABLE IF NOT EXISTS changelog (
+    change_id  BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(32) NOT NULL,
+    row_id     INT         NOT NULL,
+    operation  CHAR(1)     NOT NULL, -- I / U / D
+    changed_at TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_changelog_table ON changelog (table_name, change_id);
+
+CREATE TRIGGER books_changelog AFTER INSERT, UPDATE, DELETE ON books FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+CREATE TRIGGER customers_changelog AFTER INSERT, UPDATE, DELETE ON customers FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+CREATE TRIGGER orders_changelog AFTER INSERT, UPDATE, DELETE ON orders FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+CREATE TRIGGER users_changelog AFTER INSERT, UPDATE, DELETE ON users FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+
+-- Экземпляры книг: row_id = isbn. Таблица создаётся db/availability.sql до этого скрипта
+CREATE TRIGGER book_copies_changelog AFTER INSERT, UPDATE, DELETE ON book_copies FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+
+-- Справочники скидок и штрафов: row_id = 0, клиенты перечитывают справочник целиком
+CREATE TRIGGER discounts_changelog AFTER INSERT, UPDATE, DELETE ON discounts FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+CREATE TRIGGER penalties_changelog AFTER INSERT, UPDATE, DELETE ON penalties FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+
+-- Скидки и штрафы заказа меняют сам заказ
+CREATE TRIGGER orderdiscounts_changelog AFTER INSERT, DELETE ON orderdiscounts FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
+CREATE TRIGGER orderpenalties_changelog AFTER INSERT, DELETE ON orderpenalties FOR EACH ROW
+    CALL 'util.H2ChangeLogTrigger';
@@ -0,0 +1,81 @@
+-- Журнал изменений для инкрементального обновления DataModel (MySQL).
+-- Каждая вставка/изменение/удаление строки пишет запись с первичным ключом;
+-- клиенты дочитывают записи с change_id больше последнего синхронизированного.
+
+CREATE TABLE IF NOT EXISTS changelog (
+    change_id  BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(32) NOT NULL,
+    row_id     INT         NOT NULL,
+    operation  CHAR(1)     NOT NULL, -- I / U / D
+    changed_at TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_changelog_table (table_name, change_id)
+);
+
+CREATE TRIGGER books_changelog_ai AFTER INSERT ON books FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('books', NEW.isbn, 'I');
+CREATE TRIGGER books_changelog_au AFTER UPDATE ON books FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('books', NEW.isbn, 'U');
+CREATE TRIGGER books_changelog_ad AFTER DELETE ON books FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('books', OLD.isbn, 'D');
+
+CREATE TRIGGER customers_changelog_ai AFTER INSERT ON customers FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('customers', NEW.customer_id, 'I');
+CREATE TRIGGER customers_changelog_au AFTER UPDATE ON customers FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('customers', NEW.customer_id, 'U');
+CREATE TRIGGER customers_changelog_ad AFTER DELETE ON customers FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('customers', OLD.customer_id, 'D');
+
+CREATE TRIGGER orders_changelog_ai AFTER INSERT ON orders FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', NEW.order_id, 'I');
+CREATE TRIGGER orders_changelog_au AFTER UPDATE ON orders FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', NEW.order_id, 'U');
+CREATE TRIGGER orders_changelog_ad AFTER DELETE ON orders FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', OLD.order_id, 'D');
+
+-- Справочники скидок и штрафов: ключ строковый, поэтому row_id = 0 и клиенты перечитывают
+-- справочник целиком. Upsert с той же суммой (ON DUPLICATE KEY UPDATE) запись не добавляет.
+CREATE TRIGGER discounts_changelog_ai AFTER INSERT ON discounts FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('discounts', 0, 'I');
+CREATE TRIGGER discounts_changelog_au AFTER UPDATE ON discounts FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation)
+    SELECT 'discounts', 0, 'U' FROM DUAL WHERE NOT (OLD.discount_amount <=> NEW.discount_amount);
+CREATE TRIGGER discounts_changelog_ad AFTER DELETE ON discounts FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('discounts', 0, 'D');
+
+CREATE TRIGGER penalties_changelog_ai AFTER INSERT ON penalties FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('penalties', 0, 'I');
+CREATE TRIGGER penalties_changelog_au AFTER UPDATE ON penalties FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation)
+    SELECT 'penalties', 0, 'U' FROM DUAL WHERE NOT (OLD.penalty_amount <=> NEW.penalty_amount);
+CREATE TRIGGER penalties_changelog_ad AFTER DELETE ON penalties FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('penalties', 0, 'D');
+
+-- Скидки и штрафы заказа меняют сам заказ
+CREATE TRIGGER orderdiscounts_changelog_ai AFTER INSERT ON orderdiscounts FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', NEW.order_id, 'U');
+CREATE TRIGGER orderdiscounts_changelog_ad AFTER DELETE ON orderdiscounts FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', OLD.order_id, 'U');
+CREATE TRIGGER orderpenalties_changelog_ai AFTER INSERT ON orderpenalties FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', NEW.order_id, 'U');
+CREATE TRIGGER orderpenalties_changelog_ad AFTER DELETE ON orderpenalties FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('orders', OLD.order_id, 'U');
+
+-- Экземпляры книг: row_id = isbn. Таблица создаётся db/availability.sql до этого скрипта
+CREATE TRIGGER book_copies_changelog_ai AFTER INSERT ON book_copies FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('book_copies', NEW.isbn, 'I');
+CREATE TRIGGER book_copies_changelog_au AFTER UPDATE ON book_copies FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation)
+    SELECT 'book_copies', NEW.isbn, 'U' FROM DUAL WHERE NOT (OLD.copies <=> NEW.copies);
+CREATE TRIGGER book_copies_changelog_ad AFTER DELETE ON book_copies FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('book_copies', OLD.isbn, 'D');
+
+CREATE TRIGGER users_changelog_ai AFTER INSERT ON users FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('users', NEW.user_id, 'I');
+CREATE TRIGGER users_changelog_au AFTER UPDATE ON users FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('users', NEW.user_id, 'U');
+CREATE TRIGGER users_changelog_ad AFTER DELETE ON users FOR EACH ROW
+    INSERT INTO changelog (table_name, row_id, operation) VALUES ('users', OLD.user_id, 'D');
+
+-- Старые записи не нужны: клиент, отставший дальше окна хранения, делает полную перезагрузку
+CREATE EVENT IF NOT EXISTS changelog_purge ON SCHEDULE EVERY 1 HOUR
+    DO DELETE FROM changelog WHERE changed_at < NOW() - INTERVAL 1 DAY;
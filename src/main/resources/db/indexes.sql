@@ -0,0 +1,8 @@
+-- Индексы под запросы DataModel (MySQL и H2).
+
+-- Заказы одного клиента в порядке order_id: WHERE customer_id = ? AND order_id > ? ORDER BY order_id LIMIT n
+CREATE INDEX idx_orders_customer ON orders (customer_id, order_id);
+
+-- Выданные на сегодня экземпляры (BookAvailability): WHERE return_date > ? AND issue_date <= ?
+-- и ветка return_date IS NULL. В базе, созданной раньше, его добавляет SchemaBootstrap.ensureExtensions
+CREATE INDEX idx_orders_return_date ON orders (return_date);
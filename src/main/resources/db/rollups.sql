@@ -0,0 +1,28 @@
+-- Сводки по заказам (MySQL и H2), поддерживаемые приращениями в транзакциях OrderController (model.RentalRollups).
+-- Суммы — по текущему содержимому orders; удалённый заказ вычитается из всех разрезов.
+
+-- dimension: DAY (dim_key — дата выдачи yyyy-MM-dd) / GENRE / CUSTOMER (customer_id) / TOTAL (пустой ключ)
+CREATE TABLE IF NOT EXISTS rental_stats (
+    dimension   VARCHAR(16)   NOT NULL,
+    dim_key     VARCHAR(100)  NOT NULL,
+    order_count INT           NOT NULL,
+    revenue     DECIMAL(14,2) NOT NULL,
+    deposits    DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (dimension, dim_key)
+);
+
+-- Заказы и залоги по дате возврата: просроченные на дату D — строки с return_date < D
+CREATE TABLE IF NOT EXISTS rental_due (
+    return_date DATE          NOT NULL PRIMARY KEY,
+    order_count INT           NOT NULL,
+    deposits    DECIMAL(14,2) NOT NULL
+);
+
+-- Одна строка (id = 1): сумма rental_due по датам возврата раньше as_of. Каждый новый день
+-- к ней прибавляются корзины прошедших дней, и отчёт о просрочке не суммирует всю историю
+CREATE TABLE IF NOT EXISTS rental_overdue (
+    id          INT           NOT NULL PRIMARY KEY,
+    as_of       DATE          NOT NULL,
+    order_count INT           NOT NULL,
+    deposits    DECIMAL(14,2) NOT NULL
+);
@@ -0,0 +1,63 @@
+-- Основные таблицы библиотеки. Синтаксис общий для MySQL и H2 в режиме MODE=MySQL;
+-- журнал изменений создаётся отдельным скриптом диалекта (db/changelog.sql, db/changelog-h2.sql).
+
+CREATE TABLE IF NOT EXISTS books (
+    isbn                INT           NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    title               VARCHAR(255)  NOT NULL,
+    author              VARCHAR(255)  NOT NULL,
+    genre               VARCHAR(100),
+    deposit_cost        DECIMAL(10,2) NOT NULL,
+    rental_cost_per_day DECIMAL(10,2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS customers (
+    customer_id  INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    address      VARCHAR(255),
+    full_name    VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(32)
+);
+
+CREATE TABLE IF NOT EXISTS discounts (
+    discount_name   VARCHAR(100)  NOT NULL PRIMARY KEY,
+    discount_amount DECIMAL(10,2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS penalties (
+    penalty_name   VARCHAR(100)  NOT NULL PRIMARY KEY,
+    penalty_amount DECIMAL(10,2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+    order_id    INT  NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    customer_id INT  NOT NULL,
+    isbn        INT  NOT NULL,
+    issue_date  DATE NOT NULL,
+    return_date DATE,
+    CONSTRAINT fk_orders_customer FOREIGN KEY (customer_id) REFERENCES customers (customer_id),
+    CONSTRAINT fk_orders_book FOREIGN KEY (isbn) REFERENCES books (isbn)
+);
+
+CREATE TABLE IF NOT EXISTS orderdiscounts (
+    order_id      INT          NOT NULL,
+    discount_name VARCHAR(100) NOT NULL,
+    PRIMARY KEY (order_id, discount_name),
+    CONSTRAINT fk_orderdiscounts_order FOREIGN KEY (order_id) REFERENCES orders (order_id) ON DELETE CASCADE,
+    CONSTRAINT fk_orderdiscounts_discount FOREIGN KEY (discount_name) REFERENCES discounts (discount_name)
+);
+
+CREATE TABLE IF NOT EXISTS orderpenalties (
+    order_id     INT          NOT NULL,
+    penalty_name VARCHAR(100) NOT NULL,
+    PRIMARY KEY (order_id, penalty_name),
+    CONSTRAINT fk_orderpenalties_order FOREIGN KEY (order_id) REFERENCES orders (order_id) ON DELETE CASCADE,
+    CONSTRAINT fk_orderpenalties_penalty FOREIGN KEY (penalty_name) REFERENCES penalties (penalty_name)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id     INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    username    VARCHAR(50)  NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(20)  NOT NULL, -- ADMIN / USER
+    customer_id INT,
+    CONSTRAINT fk_users_customer FOREIGN KEY (customer_id) REFERENCES customers (customer_id)
+);
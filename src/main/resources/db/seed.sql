@@ -0,0 +1,25 @@
+-- Демонстрационные данные для новой встраиваемой базы (db.seed=true).
+-- Пароли хранятся как есть — так их проверяет AuthController.
+
+INSERT INTO books (title, author, genre, deposit_cost, rental_cost_per_day) VALUES
+    ('Война и мир', 'Лев Толстой', 'Роман', 1500.00, 45.00),
+    ('Анна Каренина', 'Лев Толстой', 'Роман', 1200.00, 40.00),
+    ('Преступление и наказание', 'Фёдор Достоевский', 'Роман', 1100.00, 35.00),
+    ('Мастер и Маргарита', 'Михаил Булгаков', 'Роман', 1300.00, 50.00),
+    ('Пикник на обочине', 'Аркадий и Борис Стругацкие', 'Фантастика', 900.00, 30.00);
+
+INSERT INTO customers (address, full_name, phone_number) VALUES
+    ('ул. Ленина, 1', 'Иванов Иван Иванович', '+7 (912) 345-67-89'),
+    ('пр. Мира, 15', 'Петрова Анна Сергеевна', '+7 (903) 111-22-33');
+
+INSERT INTO discounts (discount_name, discount_amount) VALUES
+    ('Постоянный читатель', 50.00),
+    ('Студент', 30.00);
+
+INSERT INTO penalties (penalty_name, penalty_amount) VALUES
+    ('Просрочка', 100.00),
+    ('Повреждение', 500.00);
+
+INSERT INTO users (username, password, role, customer_id) VALUES
+    ('admin', 'admin', 'ADMIN', NULL),
+    ('ivanov', 'ivanov', 'USER', 1);
@@ -0,0 +1,41 @@
+package model;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Расчёт стоимости заказа до PricingEngine (BigDecimal, разница дат в миллисекундах) — эталон для сверки
+final class LegacyPricing {
+    private LegacyPricing() {
+    }
+
+    static BigDecimal rentalCost(BigDecimal costPerDay, Date issueDate, Date returnDate) {
+        if (issueDate == null || returnDate == null) {
+            return BigDecimal.ZERO;
+        }
+
+        long diff = returnDate.getTime() - issueDate.getTime();
+        long days = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
+        days = Math.max(days, 1);
+
+        if (costPerDay != null) {
+            return costPerDay.multiply(BigDecimal.valueOf(days));
+        }
+        return BigDecimal.ZERO;
+    }
+
+    static BigDecimal total(BigDecimal rental, List<BigDecimal> discounts, List<BigDecimal> penalties) {
+        BigDecimal total = rental;
+
+        for (BigDecimal discount : discounts) {
+            total = total.subtract(discount);
+        }
+
+        for (BigDecimal penalty : penalties) {
+            total = total.add(penalty);
+        }
+
+        return total.max(BigDecimal.ZERO);
+    }
+}
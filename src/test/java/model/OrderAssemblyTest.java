@@ -0,0 +1,132 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Заказ собирается полностью и рассчитывается ровно один раз. Число расчётов видно по обращениям
+// PricingEngine к суммам: цена книги читается при расчёте аренды, сумма скидки — при расчёте итога
+class OrderAssemblyTest {
+    private static final Date ISSUE = Date.valueOf(LocalDate.of(2024, 3, 1));
+    private static final Date RETURN = Date.valueOf(LocalDate.of(2024, 3, 15));
+
+    @Test
+    void builderPricesOnce() {
+        CountingBook book = new CountingBook("45.50");
+        CountingDiscount discount = new CountingDiscount("12.25");
+
+        Order order = Order.builder(1, 1, 1, ISSUE, RETURN)
+                .book(book)
+                .discount(discount)
+                .discount(new Discount("Second", new BigDecimal("1.00")))
+                .penalty(new Penalty("Late", new BigDecimal("30.00")))
+                .penalties(List.of(new Penalty("Damage", new BigDecimal("5.00"))))
+                .build();
+
+        assertEquals(1, book.reads);
+        assertEquals(1, discount.reads);
+        // 45.50 × 14 − 12.25 − 1.00 + 30.00 + 5.00
+        assertEquals(new BigDecimal("658.75"), order.getTotalAmount());
+    }
+
+    @Test
+    void toBuilderCopiesAssociationsAndPricesOnce() {
+        CountingBook book = new CountingBook("10.00");
+        CountingDiscount discount = new CountingDiscount("3.00");
+        Order original = Order.builder(1, 1, 1, ISSUE, RETURN).book(book).discount(discount).build();
+        book.reads = 0;
+        discount.reads = 0;
+
+        Order copy = original.toBuilder().penalty(new Penalty("Late", new BigDecimal("2.00"))).build();
+
+        assertEquals(1, book.reads);
+        assertEquals(1, discount.reads);
+        assertEquals(new BigDecimal("137.00"), original.getTotalAmount());
+        assertEquals(new BigDecimal("139.00"), copy.getTotalAmount());
+        assertEquals(0, original.getPenalties().size());
+        assertEquals(List.of(discount), copy.getDiscounts());
+        assertEquals(1, copy.getPenalties().size());
+    }
+
+    // Путь пакетной загрузки (DataModel.loadOrderAssociations): связи привязываются без пересчёта,
+    // заморозка рассчитывает заказ один раз
+    @Test
+    void batchAssemblyPricesOnceOnFreeze() {
+        CountingBook book = new CountingBook("20.00");
+        CountingDiscount first = new CountingDiscount("1.00");
+        CountingDiscount second = new CountingDiscount("2.00");
+        Order order = new Order(1, 1, 1, ISSUE, RETURN);
+
+        order.attachDiscount(first);
+        order.attachDiscount(second);
+        order.attachPenalty(new Penalty("Late", new BigDecimal("4.00")));
+        order.attachBook(book);
+        assertEquals(0, book.reads);
+        assertEquals(0, first.reads);
+
+        order.freeze();
+
+        assertTrue(order.isFrozen());
+        assertEquals(1, book.reads);
+        assertEquals(1, first.reads);
+        assertEquals(1, second.reads);
+        assertEquals(new BigDecimal("281.00"), order.getTotalAmount());
+    }
+
+    @Test
+    void frozenOrderRejectsSilentAssembly() {
+        Order order = Order.builder(7, 1, 1, ISSUE, RETURN).build();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> order.attachDiscount(new Discount("Late", BigDecimal.ONE)));
+        assertEquals("Order 7 is already assembled", error.getMessage());
+        assertThrows(IllegalStateException.class, order::freeze);
+    }
+
+    // После заморозки связь добавляется только с пересчётом
+    @Test
+    void addDiscountRepricesFrozenOrder() {
+        CountingDiscount discount = new CountingDiscount("5.00");
+        Order order = Order.builder(1, 1, 1, ISSUE, RETURN).book(new Book(1, "Title", "Author", "Genre",
+                BigDecimal.ONE, new BigDecimal("10.00"))).build();
+
+        order.addDiscount(discount);
+
+        assertEquals(1, discount.reads);
+        assertEquals(new BigDecimal("135.00"), order.getTotalAmount());
+    }
+
+    private static final class CountingBook extends Book {
+        int reads;
+
+        CountingBook(String rentalCostPerDay) {
+            super(1, "Title", "Author", "Genre", BigDecimal.ONE, new BigDecimal(rentalCostPerDay));
+        }
+
+        @Override
+        public long getRentalCostPerDayMinor() {
+            reads++;
+            return super.getRentalCostPerDayMinor();
+        }
+    }
+
+    private static final class CountingDiscount extends Discount {
+        int reads;
+
+        CountingDiscount(String amount) {
+            super("Counted " + amount, new BigDecimal(amount));
+        }
+
+        @Override
+        public long getDiscountAmountMinor() {
+            reads++;
+            return super.getDiscountAmountMinor();
+        }
+    }
+}
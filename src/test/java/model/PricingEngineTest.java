@@ -0,0 +1,138 @@
+package model;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Сверка PricingEngine с прежним расчётом на BigDecimal на случайных заказах
+class PricingEngineTest {
+    private static final int CASES = 100_000;
+
+    private static TimeZone defaultZone;
+
+    // Прежний расчёт зависит от часового пояса (см. countsCalendarDaysAcrossDaylightSavingChange)
+    @BeforeAll
+    static void useUtc() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @AfterAll
+    static void restoreZone() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    // Суммы с двумя знаками, как в DECIMAL(10,2): итог совпадает с прежним расчётом точно
+    @Test
+    void matchesLegacyPricingOnStoredAmounts() {
+        verify(2, 42);
+    }
+
+    // Лишние знаки округляются HALF_UP до копеек до расчёта — как при записи суммы в базу.
+    // Итог совпадает с прежним расчётом по суммам в том виде, в каком их хранит база
+    @Test
+    void roundsFractionalAmountsBeforePricing() {
+        verify(3, 7);
+    }
+
+    @Test
+    void roundsHalfUpToMinorUnits() {
+        assertEquals(1, Money.toMinor(new BigDecimal("0.005")));
+        assertEquals(0, Money.toMinor(new BigDecimal("0.0049")));
+        assertEquals(1013, Money.toMinor(new BigDecimal("10.125")));
+        assertEquals(-1, Money.toMinor(new BigDecimal("-0.005")));
+        assertEquals(0, Money.toMinor(null));
+
+        Order order = Order.builder(1, 1, 1, date(2024, 3, 1), date(2024, 3, 4))
+                .book(book(new BigDecimal("10.005")))
+                .discount(new Discount("D", new BigDecimal("0.004")))
+                .penalty(new Penalty("P", new BigDecimal("0.125")))
+                .build();
+        // 10.01 × 3 − 0.00 + 0.13
+        assertEquals(new BigDecimal("30.03"), order.getRentalCost());
+        assertEquals(new BigDecimal("30.16"), order.getTotalAmount());
+    }
+
+    // Прежний расчёт делил разницу в миллисекундах нацело и терял день аренды, если в интервал
+    // попадал переход на летнее время; PricingEngine считает календарные дни
+    @Test
+    void countsCalendarDaysAcrossDaylightSavingChange() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try {
+            Date issue = date(2024, 3, 9);
+            Date returned = date(2024, 3, 12);
+            BigDecimal costPerDay = new BigDecimal("10.00");
+            Order order = Order.builder(1, 1, 1, issue, returned).book(book(costPerDay)).build();
+
+            assertEquals(new BigDecimal("30.00"), order.getRentalCost());
+            assertEquals(new BigDecimal("20.00"), LegacyPricing.rentalCost(costPerDay, issue, returned));
+        } finally {
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        }
+    }
+
+    // Случайные заказы, в том числе без дат или книги, с итогом ниже нуля и возвратом раньше выдачи
+    private static void verify(int scale, long seed) {
+        Random random = new Random(seed);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < CASES; i++) {
+            BigDecimal costPerDay = random.nextInt(50) == 0 ? null : amount(random, 10_000, scale);
+            LocalDate issue = start.plusDays(random.nextInt(730));
+            Date issueDate = random.nextInt(50) == 0 ? null : Date.valueOf(issue);
+            Date returnDate = random.nextInt(50) == 0 ? null : Date.valueOf(issue.plusDays(random.nextInt(400) - 5));
+
+            Order.Builder builder = Order.builder(i, 1, 1, issueDate, returnDate)
+                    .book(costPerDay != null ? book(costPerDay) : null);
+            List<BigDecimal> discounts = new ArrayList<>();
+            List<BigDecimal> penalties = new ArrayList<>();
+            for (int d = random.nextInt(5); d > 0; d--) {
+                BigDecimal amount = amount(random, 50_000, scale);
+                discounts.add(stored(amount));
+                builder.discount(new Discount("D" + d, amount));
+            }
+            for (int p = random.nextInt(5); p > 0; p--) {
+                BigDecimal amount = amount(random, 50_000, scale);
+                penalties.add(stored(amount));
+                builder.penalty(new Penalty("P" + p, amount));
+            }
+            Order order = builder.build();
+
+            BigDecimal rental = LegacyPricing.rentalCost(costPerDay != null ? stored(costPerDay) : null, issueDate, returnDate);
+            BigDecimal total = LegacyPricing.total(rental, discounts, penalties);
+            String context = "case " + i + " (scale " + scale + ")";
+            assertEquals(0, rental.compareTo(order.getRentalCost()),
+                    () -> context + ": rental expected " + rental + ", got " + order.getRentalCost());
+            assertEquals(0, total.compareTo(order.getTotalAmount()),
+                    () -> context + ": total expected " + total + ", got " + order.getTotalAmount());
+        }
+    }
+
+    // Целая часть до bound, scale знаков после запятой
+    private static BigDecimal amount(Random random, int bound, int scale) {
+        long unscaled = (long) random.nextInt(bound) * BigDecimal.TEN.pow(scale).longValue()
+                + random.nextInt(BigDecimal.TEN.pow(scale).intValue());
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static BigDecimal stored(BigDecimal amount) {
+        return amount.setScale(Money.SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static Book book(BigDecimal costPerDay) {
+        return new Book(1, "Title", "Author", "Genre", BigDecimal.ONE, costPerDay);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return Date.valueOf(LocalDate.of(year, month, day));
+    }
+}